@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import gvoid.concurrent.task.Executable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.task.TaskSpawner;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded hot paths which are expected to report 0 B/op with -prof gc, except for
+ * {@link #postRunnableAndHandle()} which wraps every runnable into a new request.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AllocationBenchmark {
+    private final Runnable mNoop = () -> {
+    };
+    private final Executable<Task> mExec = task -> null;
+
+    private Handler mHandler;
+    private Looper mLooper;
+    private TaskSpawner mSpawner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mHandler = new Handler();
+        mLooper = new Looper(mHandler);
+        mLooper.start();
+        mSpawner = ExecutorTaskSpawner.with(Runnable::run);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mLooper.stop();
+        mHandler.close();
+        mSpawner.close();
+    }
+
+    @Benchmark
+    public boolean postAndHandle() {
+        mHandler.post(Request.obtain(mNoop));
+        return mLooper.handleNonBlocking();
+    }
+
+    @Benchmark
+    public boolean postRunnableAndHandle() {
+        mHandler.post(mNoop);
+        return mLooper.handleNonBlocking();
+    }
+
+    @Benchmark
+    public boolean spawnAndRecycle() {
+        Task task = mSpawner.execute(mExec);
+        return mSpawner.recycle(task);
+    }
+}
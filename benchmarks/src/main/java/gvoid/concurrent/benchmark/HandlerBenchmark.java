@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HandlerBenchmark {
+    public static final int BATCH_SIZE = 1024;
+
+    @Param({"1", "2", "4"})
+    public int loopers;
+
+    private Handler mHandler;
+    private Looper[] mLoopers;
+    private Thread[] mThreads;
+
+    private final AtomicLong mDone = new AtomicLong();
+    private final Runnable mTick = mDone::incrementAndGet;
+    private long mSeq;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mHandler = new Handler();
+        mLoopers = new Looper[loopers];
+        mThreads = new Thread[loopers];
+        for (int i = 0; i < loopers; i++) {
+            mLoopers[i] = new Looper(mHandler);
+            mThreads[i] = Looper.startOnThread(mLoopers[i]);
+        }
+        mDone.set(0L);
+        mSeq = 0L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (Looper looper : mLoopers) looper.stop();
+        mHandler.close();
+        for (Thread thread : mThreads) thread.join();
+    }
+
+    /* -------- Latency -------- */
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long postLatency() {
+        long target = ++mSeq;
+        mHandler.post(mTick);
+        awaitDone(target);
+        return target;
+    }
+
+    /* -------- Throughput -------- */
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long postThroughput() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mHandler.post(mTick);
+        }
+        mSeq += BATCH_SIZE;
+        awaitDone(mSeq);
+        return mSeq;
+    }
+
+    private void awaitDone(long target) {
+        while (mDone.get() < target) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import gvoid.concurrent.exec.loop.WaitStrategy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LooperWaitBenchmark {
+    @Param({"blocking", "spin", "spinYield", "spinPark"})
+    public String strategy;
+
+    /* Pause before each post so the looper has gone idle, 0 keeps it hot */
+    @Param({"0", "50"})
+    public long idleMicros;
+
+    private Handler mHandler;
+    private Looper mLooper;
+    private Thread mThread;
+    private ThreadMXBean mThreads;
+
+    private volatile long mRunTime;
+    private final Runnable mTick = () -> mRunTime = System.nanoTime();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mHandler = new Handler();
+        mLooper = new Looper(mHandler);
+        mLooper.mWaitStrategy = toStrategy(strategy);
+        mThread = Looper.startOnThread(mLooper);
+        mThreads = ManagementFactory.getThreadMXBean();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        mLooper.stop();
+        mHandler.close();
+        mThread.join();
+    }
+
+    /* -------- Wake-up -------- */
+
+    @Benchmark
+    public long wakeLatency(WakeCounters counters) {
+        if (idleMicros > 0L) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(idleMicros));
+        }
+        long postTime = System.nanoTime();
+        mHandler.post(mTick);
+        long runTime;
+        while ((runTime = mRunTime) < postTime) {
+            Thread.onSpinWait();
+        }
+        counters.record(this, runTime - postTime);
+        return runTime;
+    }
+
+    long looperCpuTime() {
+        return mThreads.getThreadCpuTime(mThread.getId());
+    }
+
+    private static WaitStrategy toStrategy(String name) {
+        switch (name) {
+            case "spin":
+                return WaitStrategy.busySpin();
+            case "spinYield":
+                return WaitStrategy.spinYield();
+            case "spinPark":
+                return WaitStrategy.spinPark();
+            default:
+                return WaitStrategy.blocking();
+        }
+    }
+
+    /* Wake-up latency next to the looper's CPU time, the two sides of the strategy tradeoff */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WakeCounters {
+        public long wakeNanos;
+        public long wakes;
+        public long looperCpuNanos;
+
+        private long mCpuStart;
+
+        @Setup(Level.Iteration)
+        public void reset(LooperWaitBenchmark benchmark) {
+            wakeNanos = 0L;
+            wakes = 0L;
+            looperCpuNanos = 0L;
+            mCpuStart = benchmark.looperCpuTime();
+        }
+
+        void record(LooperWaitBenchmark benchmark, long nanos) {
+            wakeNanos += nanos;
+            // Sampling the thread CPU time is a syscall, keep it off most operations
+            if ((++wakes & 0x3F) == 0L) {
+                looperCpuNanos = benchmark.looperCpuTime() - mCpuStart;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import gvoid.concurrent.task.Executable;
+import gvoid.concurrent.task.Handleable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.task.TaskSpawner;
+import gvoid.concurrent.task.TaskWait;
+import gvoid.concurrent.task.async.AsyncTaskSpawner;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskBenchmark {
+    public static final String SPAWNER_EXECUTOR = "executor";
+    public static final String SPAWNER_ASYNC = "async";
+
+    @Param({SPAWNER_EXECUTOR, SPAWNER_ASYNC})
+    public String spawner;
+
+    private final Runnable mPost = () -> {
+    };
+    private final Executable<Task> mExec = task -> null;
+    private final Executable<Task> mExecWithPost = task -> mPost;
+    private final Handleable mPostExec = (state, throwable) -> {
+    };
+
+    private TaskSpawner mSpawner;
+    private Handler mHandler;
+    private Looper mLooper;
+    private Thread mLooperThread;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (SPAWNER_ASYNC.equals(spawner)) {
+            mHandler = new Handler();
+            mLooper = new Looper(mHandler);
+            mLooperThread = Looper.startOnThread(mLooper);
+            mSpawner = AsyncTaskSpawner.create(mHandler, 1);
+        } else {
+            mSpawner = ExecutorTaskSpawner.create(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        mSpawner.close();
+        if (mLooper != null) {
+            mLooper.stop();
+            mHandler.close();
+            mLooperThread.join();
+        }
+    }
+
+    @Benchmark
+    public int execute() throws InterruptedException {
+        Task task = mSpawner.execute(mExec);
+        TaskWait.awaitCompletion(task);
+        return task.getState();
+    }
+
+    @Benchmark
+    public int executeWithPost() throws InterruptedException {
+        Task task = mSpawner.execute(mExecWithPost, mPostExec);
+        TaskWait.awaitCompletion(task);
+        return task.getState();
+    }
+
+    @Benchmark
+    public int executeRecycled() throws InterruptedException {
+        Task task = mSpawner.execute(mExecWithPost, mPostExec);
+        TaskWait.awaitCompletion(task);
+        int state = task.getState();
+        mSpawner.recycle(task);
+        return state;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.task.Executable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.task.TaskStack;
+import gvoid.concurrent.task.executor.ExecutorTaskStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskStackBenchmark {
+    private final Executable<Task> mExec = task -> null;
+
+    private TaskStack mStack;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mStack = ExecutorTaskStack.create(2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mStack.close();
+    }
+
+    /* -------- Next -------- */
+
+    @Benchmark
+    @Threads(1)
+    public Task next1() {
+        return mStack.next(mExec);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task next4() {
+        return mStack.next(mExec);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Task next8() {
+        return mStack.next(mExec);
+    }
+
+    /* -------- Execute -------- */
+
+    @Benchmark
+    @Threads(1)
+    public Task execute1() {
+        return mStack.execute(mExec);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task execute4() {
+        return mStack.execute(mExec);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.task.Executable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.task.TaskWait;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskWaitBenchmark {
+    private ExecutorTaskSpawner mSpawner;
+    private Task mDoneTask;
+
+    private volatile long mEndTime;
+    private final Executable<Task> mExec = task -> {
+        mEndTime = System.nanoTime();
+        return null;
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        mSpawner = ExecutorTaskSpawner.create(1);
+        mDoneTask = mSpawner.execute(mExec);
+        TaskWait.awaitCompletion(mDoneTask);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mSpawner.close();
+    }
+
+    /* -------- Wake-up -------- */
+
+    @Benchmark
+    public int awaitCompletion(WakeCounters counters) throws InterruptedException {
+        Task task = mSpawner.execute(mExec);
+        TaskWait.awaitCompletion(task);
+        counters.record(System.nanoTime() - mEndTime);
+        int state = task.getState();
+        mSpawner.recycle(task);
+        return state;
+    }
+
+    @Benchmark
+    public int awaitCompletionTimed() throws InterruptedException {
+        Task task = mSpawner.execute(mExec);
+        TaskWait.awaitCompletion(task, 1L, TimeUnit.SECONDS);
+        int state = task.getState();
+        mSpawner.recycle(task);
+        return state;
+    }
+
+    /* -------- Fast path -------- */
+
+    @Benchmark
+    public int awaitCompleted() throws InterruptedException {
+        TaskWait.awaitCompletion(mDoneTask);
+        return mDoneTask.getState();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WakeCounters {
+        public long wakeNanos;
+        public long wakes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wakeNanos = 0L;
+            wakes = 0L;
+        }
+
+        void record(long nanos) {
+            wakeNanos += nanos;
+            wakes++;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.benchmark;
+
+import gvoid.concurrent.exec.loop.Handler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = TimedQueueBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = TimedQueueBenchmark.BATCH_SIZE)
+public class TimedQueueBenchmark {
+    public static final int BATCH_SIZE = 1000;
+    public static final long MAX_DELAY = TimeUnit.HOURS.toMillis(1L);
+
+    @Param({"0", "1000", "10000", "100000"})
+    public int queueSize;
+
+    private final Runnable mNoop = () -> {
+    };
+
+    private Handler mHandler;
+    private Random mRandom;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        mHandler = new Handler();
+        mRandom = new Random(42L);
+        for (int i = 0; i < queueSize; i++) {
+            mHandler.postDelayed(mNoop, nextDelay());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        mHandler.close();
+    }
+
+    @Benchmark
+    public Object postDelayedRandom() {
+        return mHandler.postDelayed(mNoop, nextDelay());
+    }
+
+    @Benchmark
+    public Object postDelayedLatest() {
+        return mHandler.postDelayed(mNoop, MAX_DELAY);
+    }
+
+    @Benchmark
+    public Object postDelayedEarliest() {
+        return mHandler.postDelayed(mNoop, 1L);
+    }
+
+    private long nextDelay() {
+        return 1L + (long) (mRandom.nextDouble() * MAX_DELAY);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.actor;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Processes its messages one at a time on a looper of its {@link ActorSystem}.
+ * The mailbox is a lock-free MPSC linked queue, a turn handles at most
+ * {@link ActorSystem#mThroughput} messages before the actor yields its looper.
+ */
+@SuppressWarnings("unused")
+public abstract class Actor<M> implements Runnable {
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int STOPPED = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Actor, Node> HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(Actor.class, Node.class, "mHead");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Actor> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Actor.class, "mState");
+
+    @NonNull
+    public final ActorSystem mSystem;
+
+    /* Producers swap in at the head, the consumer reads from the tail */
+    private volatile Node<M> mHead;
+    private Node<M> mTail;
+    private volatile int mState;
+
+    protected Actor(@NonNull ActorSystem system) {
+        mSystem = system;
+        Node<M> stub = new Node<>(null);
+        mHead = stub;
+        mTail = stub;
+    }
+
+    protected abstract void onMessage(@NonNull M message) throws Exception;
+
+    protected void onFailure(@NonNull M message, @NonNull Throwable throwable) {
+        throwable.printStackTrace();
+    }
+
+    public final boolean isStopped() {
+        return mState == STOPPED;
+    }
+
+    /* -------- Messaging -------------- */
+    public final boolean tell(@NonNull M message) {
+        //noinspection ConstantConditions
+        if (message == null) throw new NullPointerException("Message is null");
+        if (mState == STOPPED) return false;
+
+        Node<M> node = new Node<>(message);
+        @SuppressWarnings("unchecked")
+        Node<M> previous = (Node<M>) HEAD.getAndSet(this, node);
+        previous.mNext = node;
+
+        if (mState == IDLE && STATE.compareAndSet(this, IDLE, SCHEDULED)) {
+            mSystem.schedule(this);
+        }
+        return true;
+    }
+
+    public final void stop() {
+        mState = STOPPED;
+    }
+
+    public final boolean hasMessages() {
+        Node<M> tail = mTail;
+        return tail.mNext != null || mHead != tail;
+    }
+
+    /* -------- Turn ------------------- */
+    @Override
+    public final void run() {
+        int throughput = Math.max(mSystem.mThroughput, 1);
+        for (int i = 0; i < throughput; i++) {
+            if (mState == STOPPED) {
+                drain();
+                return;
+            }
+            M message = poll();
+            if (message == null) break;
+            try {
+                onMessage(message);
+            } catch (Throwable tr) {
+                try {
+                    onFailure(message, tr);
+                } catch (Throwable ignored) {
+                }
+            }
+        }
+
+        if (!STATE.compareAndSet(this, SCHEDULED, IDLE)) return;
+        // A producer may have enqueued after the last poll but seen the actor still scheduled
+        if (hasMessages() && STATE.compareAndSet(this, IDLE, SCHEDULED)) {
+            mSystem.reschedule(this);
+        }
+    }
+
+    @Nullable
+    private M poll() {
+        Node<M> tail = mTail;
+        Node<M> next = tail.mNext;
+        if (next == null) {
+            if (mHead == tail) return null;
+            // A producer swapped the head but has not linked its node yet
+            while ((next = tail.mNext) == null) {
+                Thread.yield();
+            }
+        }
+        M message = next.mMessage;
+        next.mMessage = null;
+        mTail = next;
+        return message;
+    }
+
+    private void drain() {
+        //noinspection StatementWithEmptyBody
+        while (poll() != null) {
+        }
+    }
+
+    private static final class Node<M> {
+        @Nullable
+        M mMessage;
+        volatile Node<M> mNext;
+
+        Node(@Nullable M message) {
+            mMessage = message;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.actor;
+
+import annotation.NonNull;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of loopers running {@link Actor} turns. Idle actors cost no thread
+ * and are not known to the system, only actors with pending messages are scheduled.
+ */
+@SuppressWarnings("unused")
+public class ActorSystem implements Closeable {
+    public static int DEFAULT_THROUGHPUT = 32;
+
+    @NonNull
+    public final Handler[] mHandlers;
+    public volatile int mThroughput;
+
+    @NonNull
+    private final Looper[] mLoopers;
+    @NonNull
+    private final AtomicInteger mNext;
+    private volatile boolean mClosed;
+
+    protected ActorSystem(int loopers) {
+        if (loopers <= 0) {
+            throw new IllegalArgumentException("Looper count must be positive");
+        }
+
+        mHandlers = new Handler[loopers];
+        mLoopers = new Looper[loopers];
+        mThroughput = DEFAULT_THROUGHPUT;
+        mNext = new AtomicInteger();
+
+        for (int i = 0; i < loopers; i++) {
+            mHandlers[i] = new Handler();
+            mLoopers[i] = new Looper(mHandlers[i]);
+        }
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static ActorSystem create() {
+        return create(Runtime.getRuntime().availableProcessors());
+    }
+
+    @NonNull
+    public static ActorSystem create(int loopers) {
+        ActorSystem system = new ActorSystem(loopers);
+        for (Looper looper : system.mLoopers) {
+            Looper.startOnThread(looper);
+        }
+        return system;
+    }
+
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    /* A newly busy actor is spread round-robin, even when the sender itself runs on a pool looper */
+    void schedule(@NonNull Actor<?> actor) {
+        int index = (mNext.getAndIncrement() & Integer.MAX_VALUE) % mHandlers.length;
+        mHandlers[index].post(Request.obtain(actor));
+    }
+
+    /* An actor continuing its own turn stays on the looper it already runs on */
+    void reschedule(@NonNull Actor<?> actor) {
+        Looper looper = Looper.myLooper();
+        if (looper != null) {
+            Handler current = looper.mHandler;
+            for (Handler handler : mHandlers) {
+                if (handler == current) {
+                    handler.post(Request.obtain(actor));
+                    return;
+                }
+            }
+        }
+        schedule(actor);
+    }
+
+    @Override
+    public void close() {
+        if (mClosed) return;
+        mClosed = true;
+        for (Looper looper : mLoopers) {
+            looper.stop();
+        }
+        for (Handler handler : mHandlers) {
+            handler.close();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.durable;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Executable;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.PeriodicRequest;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+public class DurableScheduler implements Closeable {
+    public static long COMPACT_INTERVAL = TimeUnit.SECONDS.toMillis(30L);
+    public static long MIN_COMPACT_RECORDS = 10000L;
+    public static double COMPACT_RATIO = 0.5;
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final Handler mHandler;
+    @NonNull
+    public final Journal mJournal;
+    public volatile boolean mSyncWrites;
+
+    @GuardedBy("mLock")
+    private final Map<String, Action> mActions;
+    @GuardedBy("mLock")
+    private final Map<Long, Entry> mEntries;
+    @GuardedBy("mLock")
+    private long mNextId;
+    @GuardedBy("mLock")
+    private long mRecords;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    @Nullable
+    private PeriodicRequest mCompactRequest;
+
+    protected DurableScheduler(@NonNull Handler handler, @NonNull Journal journal) {
+        mLock = new Object();
+        mHandler = handler;
+        mJournal = journal;
+        mSyncWrites = false;
+        mActions = new HashMap<>();
+        mEntries = new LinkedHashMap<>();
+        mNextId = 1L;
+    }
+
+    @NonNull
+    public static DurableScheduler open(@NonNull Handler handler, @NonNull File dir) throws IOException {
+        return open(handler, new Journal(dir));
+    }
+
+    @NonNull
+    public static DurableScheduler open(@NonNull Handler handler, @NonNull Journal journal) throws IOException {
+        DurableScheduler scheduler = new DurableScheduler(handler, journal);
+        scheduler.replay();
+        return scheduler;
+    }
+
+    private void replay() throws IOException {
+        synchronized (mLock) {
+            mJournal.replay(record -> {
+                mRecords++;
+                mNextId = Math.max(mNextId, record.mId + 1L);
+                if (record.mType == Journal.TYPE_SCHEDULE) {
+                    mEntries.put(record.mId, new Entry(record));
+                } else {
+                    mEntries.remove(record.mId);
+                }
+            });
+        }
+        mCompactRequest = mHandler.postWithFixedDelay(
+                (Runnable) this::maybeCompact, COMPACT_INTERVAL, COMPACT_INTERVAL);
+    }
+
+    /* -------- Actions ---------------- */
+    @NonNull
+    public DurableScheduler register(@NonNull String name, @NonNull Action action) {
+        synchronized (mLock) {
+            throwIfClosed();
+            mActions.put(name, action);
+            for (Entry entry : mEntries.values()) {
+                if (entry.mRequest == null && name.equals(entry.mRecord.mName)) {
+                    post(entry);
+                }
+            }
+            return this;
+        }
+    }
+
+    @NonNull
+    public DurableScheduler unregister(@NonNull String name) {
+        synchronized (mLock) {
+            mActions.remove(name);
+            return this;
+        }
+    }
+
+    /* -------- Scheduling ------------- */
+    public long schedule(@NonNull String name, @Nullable byte[] payload,
+                         long delay, @NonNull TimeUnit unit) throws IOException {
+        return scheduleAt(name, payload, System.currentTimeMillis() + unit.toMillis(Math.max(delay, 0L)));
+    }
+
+    public long scheduleAt(@NonNull String name, @Nullable byte[] payload, long time) throws IOException {
+        if (payload == null) payload = new byte[0];
+
+        long id, token;
+        synchronized (mLock) {
+            throwIfClosed();
+            id = mNextId++;
+            token = mJournal.append(Journal.TYPE_SCHEDULE, id, time, name, payload);
+            mRecords++;
+
+            Entry entry = new Entry(new Journal.Record(Journal.TYPE_SCHEDULE, id, time, name, payload));
+            mEntries.put(id, entry);
+            if (mActions.containsKey(name)) post(entry);
+        }
+        awaitCommit(token);
+        return id;
+    }
+
+    public boolean cancel(long id) throws IOException {
+        Entry entry;
+        long token;
+        synchronized (mLock) {
+            entry = mEntries.remove(id);
+            if (entry == null || mClosed) return false;
+            token = mJournal.append(Journal.TYPE_CANCEL, id, 0L, null, null);
+            mRecords++;
+        }
+        Request request = entry.mRequest;
+        if (request != null) request.cancel();
+        awaitCommit(token);
+        return true;
+    }
+
+    public int pendingCount() {
+        synchronized (mLock) {
+            return mEntries.size();
+        }
+    }
+
+    public void sync() throws IOException {
+        mJournal.sync();
+    }
+
+    /* -------- Compaction ------------- */
+    public void compact() throws IOException {
+        synchronized (mLock) {
+            throwIfClosed();
+            List<Journal.Record> live = new ArrayList<>(mEntries.size());
+            for (Entry entry : mEntries.values()) {
+                live.add(entry.mRecord);
+            }
+            mJournal.compact(live);
+            mRecords = live.size();
+        }
+    }
+
+    private void maybeCompact() {
+        try {
+            synchronized (mLock) {
+                if (mClosed) return;
+                if (mRecords < MIN_COMPACT_RECORDS) return;
+                if (mEntries.size() > mRecords * COMPACT_RATIO) return;
+            }
+            compact();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<Entry> entries;
+        synchronized (mLock) {
+            if (mClosed) return;
+            mClosed = true;
+            entries = new ArrayList<>(mEntries.values());
+            mEntries.clear();
+        }
+
+        PeriodicRequest compactRequest = mCompactRequest;
+        if (compactRequest != null) compactRequest.cancel();
+        for (Entry entry : entries) {
+            Request request = entry.mRequest;
+            if (request != null) request.cancel();
+        }
+        mJournal.close();
+    }
+
+    /* -------- Internals -------------- */
+    private void throwIfClosed() {
+        if (mClosed) {
+            throw new IllegalStateException("Scheduler is closed");
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void post(@NonNull Entry entry) {
+        long id = entry.mRecord.mId;
+        entry.mRequest = mHandler.postAtTime(
+                (Executable<Request>) request -> execute(id), entry.mRecord.mTime);
+    }
+
+    private void execute(long id) throws Exception {
+        Entry entry;
+        Action action;
+        synchronized (mLock) {
+            if (mClosed) return;
+            entry = mEntries.get(id);
+            if (entry == null) return;
+            action = mActions.get(entry.mRecord.mName);
+        }
+        if (action == null) {
+            synchronized (mLock) {
+                entry.mRequest = null;
+            }
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            action.execute(entry.mRecord.mPayload);
+            completed = true;
+        } finally {
+            synchronized (mLock) {
+                if (!completed) {
+                    // Keep the entry pending, it runs again on the next register or replay
+                    entry.mRequest = null;
+                } else if (!mClosed && mEntries.remove(id) != null) {
+                    try {
+                        mJournal.append(Journal.TYPE_COMPLETE, id, 0L, null, null);
+                        mRecords++;
+                    } catch (Throwable ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    private void awaitCommit(long token) throws IOException {
+        if (!mSyncWrites) return;
+        try {
+            mJournal.commit(token);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while committing", e);
+        }
+    }
+
+    private static final class Entry {
+        @NonNull
+        final Journal.Record mRecord;
+        @Nullable
+        volatile Request mRequest;
+
+        Entry(@NonNull Journal.Record record) {
+            mRecord = record;
+        }
+    }
+
+    public interface Action {
+        void execute(@NonNull byte[] payload) throws Exception;
+    }
+}
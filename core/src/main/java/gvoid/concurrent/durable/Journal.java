@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.durable;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+@SuppressWarnings("unused")
+public class Journal implements Closeable {
+    public static int SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static int MAX_NAME_LENGTH = 255;
+    public static int MAX_PAYLOAD_LENGTH = 64 * 1024;
+    public static long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(5L);
+
+    public static final byte TYPE_SCHEDULE = 1;
+    public static final byte TYPE_COMPLETE = 2;
+    public static final byte TYPE_CANCEL = 3;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    /* length + crc */
+    private static final int HEADER_SIZE = 8;
+    /* type + id + time + name length + payload length */
+    private static final int BODY_SIZE = 1 + 8 + 8 + 2 + 4;
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final File mDir;
+    public final int mSegmentSize;
+
+    @GuardedBy("mLock")
+    private final List<Segment> mSegments;
+    @GuardedBy("mLock")
+    private Segment mSegment;
+    @GuardedBy("mLock")
+    private long mWritten;
+    @GuardedBy("mLock")
+    private long mFlushed;
+    @GuardedBy("mLock")
+    private int mCommitWaiters;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+    /* First failed flush, sticky since later syncs cannot vouch for the lost pages */
+    @GuardedBy("mLock")
+    private IOException mFlushError;
+
+    @NonNull
+    private final CRC32 mCrc;
+    @Nullable
+    private Thread mFlusher;
+
+    public Journal(@NonNull File dir) throws IOException {
+        this(dir, SEGMENT_SIZE);
+    }
+
+    public Journal(@NonNull File dir, int segmentSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + dir);
+        }
+        if (segmentSize < HEADER_SIZE + BODY_SIZE + MAX_NAME_LENGTH + MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Segment size too small");
+        }
+
+        mLock = new Object();
+        mDir = dir;
+        mSegmentSize = segmentSize;
+        mSegments = new ArrayList<>();
+        mCrc = new CRC32();
+    }
+
+    /* -------- Replay ----------------- */
+    public void replay(@NonNull Visitor visitor) throws IOException {
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (mSegment != null) {
+                throw new IllegalStateException("Journal is already open");
+            }
+
+            File[] files = mDir.listFiles((d, name) ->
+                    name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+            if (files == null) files = new File[0];
+            Arrays.sort(files);
+
+            for (File file : files) {
+                Segment segment = Segment.open(file, parseSeq(file), mSegmentSize);
+                segment.mPosition = read(segment, visitor);
+                mSegments.add(segment);
+            }
+
+            if (mSegments.isEmpty()) {
+                mSegment = newSegment(1L);
+            } else {
+                mSegment = mSegments.get(mSegments.size() - 1);
+            }
+
+            Thread flusher = new Thread(this::flushLoop, "JournalFlusher");
+            flusher.setDaemon(true);
+            mFlusher = flusher;
+            flusher.start();
+        }
+    }
+
+    private int read(@NonNull Segment segment, @NonNull Visitor visitor) {
+        MappedByteBuffer buffer = segment.mBuffer;
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + HEADER_SIZE + BODY_SIZE <= segment.mSize) {
+            int length = buffer.getInt(position);
+            if (length < BODY_SIZE || position + HEADER_SIZE + length > segment.mSize) break;
+            int checksum = buffer.getInt(position + 4);
+
+            ByteBuffer body = buffer.duplicate();
+            body.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+
+            Record record = decode(body);
+            if (record == null) break;
+            try {
+                visitor.visit(record);
+            } catch (Throwable ignored) {
+            }
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /* -------- Writing ---------------- */
+    public long append(byte type, long id, long time, @Nullable String name, @Nullable byte[] payload)
+            throws IOException {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (payload == null) payload = new byte[0];
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Name too long");
+        }
+        if (payload.length > MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Payload too large");
+        }
+
+        int length = BODY_SIZE + nameBytes.length + payload.length;
+        synchronized (mLock) {
+            Segment segment = getSegmentOrThrow();
+            if (segment.mPosition + HEADER_SIZE + length > segment.mSize) {
+                segment = roll();
+            }
+
+            MappedByteBuffer buffer = segment.mBuffer;
+            int position = segment.mPosition;
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + HEADER_SIZE);
+            body.put(type);
+            body.putLong(id);
+            body.putLong(time);
+            body.putShort((short) nameBytes.length);
+            body.putInt(payload.length);
+            body.put(nameBytes);
+            body.put(payload);
+
+            body.flip().position(position + HEADER_SIZE);
+            CRC32 crc = mCrc;
+            crc.reset();
+            crc.update(body);
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.putInt(position, length);
+            if (position + HEADER_SIZE + length + 4 <= segment.mSize) {
+                buffer.putInt(position + HEADER_SIZE + length, 0);
+            }
+
+            segment.mPosition = position + HEADER_SIZE + length;
+            return ++mWritten;
+        }
+    }
+
+    public void commit(long token) throws InterruptedException, IOException {
+        synchronized (mLock) {
+            if (mFlushed >= token) return;
+            mCommitWaiters++;
+            try {
+                mLock.notifyAll();
+                while (mFlushed < token) {
+                    throwIfFlushFailed();
+                    if (mClosed) {
+                        throw new IOException("Journal closed before the record was flushed");
+                    }
+                    mLock.wait();
+                }
+            } finally {
+                mCommitWaiters--;
+            }
+        }
+    }
+
+    public void sync() throws IOException {
+        Segment segment;
+        long written;
+        synchronized (mLock) {
+            throwIfFlushFailed();
+            segment = getSegmentOrThrow();
+            written = mWritten;
+        }
+        force(segment);
+        synchronized (mLock) {
+            if (written > mFlushed) mFlushed = written;
+            mLock.notifyAll();
+        }
+    }
+
+    /* -------- Compaction ------------- */
+    public void compact(@NonNull Collection<Record> live) throws IOException {
+        synchronized (mLock) {
+            throwIfFlushFailed();
+            Segment current = getSegmentOrThrow();
+            force(current);
+
+            long seq = current.mSeq;
+            mSegment = null;
+            mSegment = newSegment(seq + 1L);
+            for (Record record : live) {
+                append(record.mType, record.mId, record.mTime, record.mName, record.mPayload);
+            }
+            force(mSegment);
+            mFlushed = mWritten;
+            mLock.notifyAll();
+
+            List<Segment> obsolete = new ArrayList<>();
+            for (Segment segment : mSegments) {
+                if (segment != mSegment && segment.mSeq <= seq) obsolete.add(segment);
+            }
+            mSegments.removeAll(obsolete);
+            for (Segment segment : obsolete) {
+                segment.delete();
+            }
+        }
+    }
+
+    public int segmentCount() {
+        synchronized (mLock) {
+            return mSegments.size();
+        }
+    }
+
+    public long size() {
+        synchronized (mLock) {
+            long size = 0L;
+            for (Segment segment : mSegments) {
+                size += segment.mPosition;
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread flusher;
+        IOException error = null;
+        synchronized (mLock) {
+            if (mClosed) return;
+            mClosed = true;
+            flusher = mFlusher;
+            mFlusher = null;
+            if (mSegment != null && mFlushError == null) {
+                try {
+                    force(mSegment);
+                    mFlushed = mWritten;
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            for (Segment segment : mSegments) {
+                segment.close();
+            }
+            mSegments.clear();
+            mSegment = null;
+            mLock.notifyAll();
+        }
+        if (flusher != null) flusher.interrupt();
+        if (error != null) throw error;
+    }
+
+    /* -------- Internals -------------- */
+    @GuardedBy("mLock")
+    @NonNull
+    private Segment getSegmentOrThrow() {
+        Segment segment = mSegment;
+        if (mClosed || segment == null) {
+            throw new IllegalStateException("Journal is not open");
+        }
+        return segment;
+    }
+
+    @GuardedBy("mLock")
+    private void throwIfFlushFailed() throws IOException {
+        IOException error = mFlushError;
+        if (error != null) {
+            throw new IOException("Journal flush failed", error);
+        }
+    }
+
+    /* Forces the segment to disk, recording the first failure for every pending commit */
+    private void force(@NonNull Segment segment) throws IOException {
+        try {
+            segment.mBuffer.force();
+        } catch (Throwable tr) {
+            IOException error = tr instanceof IOException
+                                ? (IOException) tr
+                                : tr.getCause() instanceof IOException
+                                  ? (IOException) tr.getCause()
+                                  : new IOException(tr);
+            synchronized (mLock) {
+                if (mFlushError == null) mFlushError = error;
+                mLock.notifyAll();
+            }
+            throw error;
+        }
+    }
+
+    @GuardedBy("mLock")
+    @NonNull
+    private Segment roll() throws IOException {
+        Segment segment = getSegmentOrThrow();
+        force(segment);
+        mFlushed = mWritten;
+        mLock.notifyAll();
+
+        Segment next = newSegment(segment.mSeq + 1L);
+        mSegment = next;
+        return next;
+    }
+
+    @GuardedBy("mLock")
+    @NonNull
+    private Segment newSegment(long seq) throws IOException {
+        String name = String.format(Locale.ROOT, "%s%016x%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX);
+        Segment segment = Segment.open(new File(mDir, name), seq, mSegmentSize);
+        mSegments.add(segment);
+        return segment;
+    }
+
+    private void flushLoop() {
+        long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(FLUSH_INTERVAL), 1L);
+        try {
+            while (true) {
+                Segment segment;
+                long written;
+                synchronized (mLock) {
+                    if (mClosed) return;
+                    if (mCommitWaiters == 0) mLock.wait(millis);
+                    if (mClosed) return;
+                    written = mWritten;
+                    if (written == mFlushed) continue;
+                    segment = mSegment;
+                }
+                if (segment == null) continue;
+
+                try {
+                    force(segment);
+                } catch (IOException ignored) {
+                    // Commit waiters now see the failure, stop vouching for anything written later
+                    return;
+                }
+                synchronized (mLock) {
+                    if (written > mFlushed) mFlushed = written;
+                    mLock.notifyAll();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static long parseSeq(@NonNull File file) {
+        String name = file.getName();
+        String hex = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        try {
+            return Long.parseUnsignedLong(hex, 16);
+        } catch (NumberFormatException ignored) {
+            return 0L;
+        }
+    }
+
+    @Nullable
+    private static Record decode(@NonNull ByteBuffer buffer) {
+        int length = buffer.remaining();
+        byte type = buffer.get();
+        long id = buffer.getLong();
+        long time = buffer.getLong();
+        int nameLength = buffer.getShort() & 0xffff;
+        int payloadLength = buffer.getInt();
+        if (nameLength < 0 || payloadLength < 0
+                || BODY_SIZE + nameLength + payloadLength != length) return null;
+
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        byte[] payload = new byte[payloadLength];
+        buffer.get(payload);
+        return new Record(type, id, time, new String(name, StandardCharsets.UTF_8), payload);
+    }
+
+    private static final class Segment {
+        final File mFile;
+        final long mSeq;
+        final int mSize;
+        final RandomAccessFile mRaf;
+        final MappedByteBuffer mBuffer;
+        int mPosition;
+
+        private Segment(@NonNull File file, long seq, int size,
+                        @NonNull RandomAccessFile raf, @NonNull MappedByteBuffer buffer) {
+            mFile = file;
+            mSeq = seq;
+            mSize = size;
+            mRaf = raf;
+            mBuffer = buffer;
+        }
+
+        @NonNull
+        static Segment open(@NonNull File file, long seq, int size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                if (raf.length() > size) size = (int) Math.min(raf.length(), Integer.MAX_VALUE);
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);
+                return new Segment(file, seq, size, raf, buffer);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                mRaf.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        void delete() {
+            close();
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+        }
+    }
+
+    public static final class Record {
+        public final byte mType;
+        public final long mId;
+        public final long mTime;
+        @NonNull
+        public final String mName;
+        @NonNull
+        public final byte[] mPayload;
+
+        public Record(byte type, long id, long time, @NonNull String name, @NonNull byte[] payload) {
+            mType = type;
+            mId = id;
+            mTime = time;
+            mName = name;
+            mPayload = payload;
+        }
+    }
+
+    public interface Visitor {
+        void visit(@NonNull Record record) throws Exception;
+    }
+}
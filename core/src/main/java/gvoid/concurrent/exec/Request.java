@@ -19,6 +19,8 @@ package gvoid.concurrent.exec;
 import annotation.GuardedBy;
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.metrics.Metrics;
+import gvoid.concurrent.trace.FlightRecorder;
 import java.io.Closeable;
 
 @SuppressWarnings("unused")
@@ -33,18 +35,47 @@ public class Request implements Runnable, Closeable {
     public static final int STATE_FAILED = STATE_DONE | 0x1 << 29;
     public static final int STATE_POST_FAILED = STATE_DONE | 0x1 << 30;
 
+    public static int MAX_POOL_SIZE = 64;
+
+    private static final Object sPoolLock = new Object();
+    @GuardedBy("sPoolLock")
+    private static Request sPool;
+    @GuardedBy("sPoolLock")
+    private static int sPoolSize = 0;
+
     @NonNull
     public final Object mLock;
     @Nullable
     public volatile Executable<Request> mExec;
     @Nullable
+    public volatile Runnable mRunnable;
+    @Nullable
     public volatile Handleable mPostExec;
+    @Nullable
+    public volatile Metrics mMetrics;
+    public volatile long mDueTime;
+    public volatile long mTraceId;
+    @Nullable
+    public volatile Object mTag;
+    @Nullable
+    public volatile CancelListener mCancelListener;
 
     @GuardedBy("mLock")
     private volatile int mState;
     @GuardedBy("mLock")
     private volatile Throwable mThrow;
 
+    @NonNull
+    private final Runnable mPostRunnable;
+    @Nullable
+    private volatile Handleable mPostHandle;
+
+    private volatile boolean mRecyclable;
+    @GuardedBy("sPoolLock")
+    private boolean mInPool;
+    @GuardedBy("sPoolLock")
+    private Request mNextInPool;
+
     public Request() {
         this(null, null, null);
     }
@@ -69,10 +100,92 @@ public class Request implements Runnable, Closeable {
         mExec = exec;
         mPostExec = postExec;
 
+        mPostRunnable = this::handlePost;
+        mRecyclable = false;
+
+        synchronized (mLock) {
+            mState = STATE_NONE;
+            mThrow = null;
+        }
+    }
+
+    /* -------- Pooling --------------- */
+    @NonNull
+    public static Request obtain() {
+        synchronized (sPoolLock) {
+            Request request = sPool;
+            if (request != null) {
+                sPool = request.mNextInPool;
+                request.mNextInPool = null;
+                request.mInPool = false;
+                sPoolSize--;
+                return request;
+            }
+        }
+
+        Request request = new Request();
+        request.mRecyclable = true;
+        return request;
+    }
+
+    @NonNull
+    public static Request obtain(@Nullable Executable<Request> exec) {
+        Request request = obtain();
+        request.mExec = exec;
+        return request;
+    }
+
+    @NonNull
+    public static Request obtain(@Nullable Executable<Request> exec,
+                                 @Nullable Handleable postExec) {
+        Request request = obtain();
+        request.mExec = exec;
+        request.mPostExec = postExec;
+        return request;
+    }
+
+    @NonNull
+    public static Request obtain(@Nullable Runnable runnable) {
+        Request request = obtain();
+        request.mRunnable = runnable;
+        return request;
+    }
+
+    public final boolean isRecyclable() {
+        return mRecyclable;
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean recycle() {
+        if (!mRecyclable) return false;
+
         synchronized (mLock) {
+            int state = mState;
+            if (state != STATE_NONE
+                    && (state & STATE_DONE) != STATE_DONE) return false;
+            if ((state & STATE_RUNNING & ~STATE_READY) != 0) return false;
             mState = STATE_NONE;
             mThrow = null;
         }
+
+        mExec = null;
+        mRunnable = null;
+        mPostExec = null;
+        mPostHandle = null;
+        mMetrics = null;
+        mDueTime = 0L;
+        mTraceId = 0L;
+        mTag = null;
+        mCancelListener = null;
+
+        synchronized (sPoolLock) {
+            if (mInPool || sPoolSize >= MAX_POOL_SIZE) return true;
+            mInPool = true;
+            mNextInPool = sPool;
+            sPool = this;
+            sPoolSize++;
+        }
+        return true;
     }
 
     public int getState() {
@@ -136,6 +249,7 @@ public class Request implements Runnable, Closeable {
             mThrow = null;
             mLock.notifyAll();
         }
+        report(STATE_STARTED);
     }
 
     @SuppressWarnings("UnusedReturnValue")
@@ -147,8 +261,18 @@ public class Request implements Runnable, Closeable {
             state |= STATE_CANCELED;
             mState = state;
             mLock.notifyAll();
-            return true;
         }
+        FlightRecorder.record(FlightRecorder.EVENT_CANCEL, FlightRecorder.SOURCE_REQUEST, mTraceId, STATE_CANCELED);
+        report(STATE_CANCELED);
+
+        CancelListener listener = mCancelListener;
+        if (listener != null) {
+            try {
+                listener.onCancel(this);
+            } catch (Throwable ignored) {
+            }
+        }
+        return true;
     }
 
     public boolean ready() {
@@ -185,9 +309,23 @@ public class Request implements Runnable, Closeable {
                 mLock.notifyAll();
             }
         }
+        if (ready) report(mState);
         return ready;
     }
 
+    protected boolean rearm() {
+        synchronized (mLock) {
+            int state = mState;
+            if ((state & STATE_DONE) != STATE_DONE) return false;
+            if ((state & STATE_CANCELED) == STATE_CANCELED) return false;
+            state = STATE_STARTED;
+            mState = state;
+            mThrow = null;
+            mLock.notifyAll();
+            return true;
+        }
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public boolean execute() {
         boolean skip;
@@ -206,16 +344,26 @@ public class Request implements Runnable, Closeable {
             ) != 0;
         }
 
+        Metrics metrics = mMetrics;
+        long startTime = 0L;
+        if (metrics != null) {
+            startTime = System.nanoTime();
+            metrics.onStateChange(STATE_RUNNING);
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_RUN_START, FlightRecorder.SOURCE_REQUEST, mTraceId, 0);
+
         Handleable postHandle = null;
         Throwable throwable = null;
         boolean success = false, end = false;
         try {
             Executable<Request> exec = mExec;
-            if (exec == null && !skip) {
+            Runnable runnable = mRunnable;
+            if (exec == null && runnable == null && !skip) {
                 synchronized (mLock) {
                     mLock.wait(20L);
                     if ((mState & STATE_DONE) == STATE_DONE) return false;
                     exec = mExec;
+                    runnable = mRunnable;
                     postHandle = mPostExec;
                 }
             } else {
@@ -223,11 +371,13 @@ public class Request implements Runnable, Closeable {
             }
 
             if (!skip) {
-                if (exec == null) {
+                if (exec != null) {
+                    exec.execute(this);
+                } else if (runnable != null) {
+                    runnable.run();
+                } else {
                     throw new NullPointerException("No executable attached");
                 }
-
-                exec.execute(this);
                 success = true;
             }
         } catch (Throwable tr) {
@@ -257,32 +407,54 @@ public class Request implements Runnable, Closeable {
                 postHandle = mPostExec;
             }
         }
+        FlightRecorder.record(FlightRecorder.EVENT_RUN_END, FlightRecorder.SOURCE_REQUEST, mTraceId, mState);
+        if (metrics != null) {
+            int state = mState;
+            metrics.onExecute(System.nanoTime() - startTime, state);
+            metrics.onStateChange(state);
+            if (throwable != null) metrics.onFailure(throwable);
+        }
         if (end) return false;
 
-        Handleable postH = postHandle;
-        if (postH == null) return success;
+        if (postHandle == null) return success;
+        mPostHandle = postHandle;
 
-        Runnable postExec = () -> {
-            try {
-                int st;
-                Throwable tr;
-                synchronized (mLock) {
-                    st = mState;
-                    tr = mThrow;
-                }
-                postH.handle(st, tr);
-            } catch (Throwable tr) {
-                synchronized (mLock) {
-                    mState |= STATE_POST_FAILED;
-                    if (mThrow != null) mThrow.addSuppressed(tr);
-                    else mThrow = tr;
-                    mLock.notifyAll();
-                }
+        long postTime = metrics != null ? System.nanoTime() : 0L;
+        try {
+            onPostExecute(mPostRunnable);
+        } catch (Throwable tr) {
+            synchronized (mLock) {
+                mState |= STATE_POST_FAILED;
+                if (mThrow != null) mThrow.addSuppressed(tr);
+                else mThrow = tr;
+                mLock.notifyAll();
             }
-        };
+        }
+        if (metrics != null) {
+            int state = mState;
+            metrics.onPostExecute(System.nanoTime() - postTime, state);
+            if ((state & STATE_POST_FAILED) == STATE_POST_FAILED) {
+                metrics.onStateChange(state);
+                metrics.onFailure(mThrow);
+            }
+        }
+
+        return success;
+    }
+
+    private void handlePost() {
+        Handleable postH = mPostHandle;
+        if (postH == null) return;
+        FlightRecorder.record(FlightRecorder.EVENT_POST_EXEC, FlightRecorder.SOURCE_REQUEST, mTraceId, mState);
 
         try {
-            onPostExecute(postExec);
+            int st;
+            Throwable tr;
+            synchronized (mLock) {
+                st = mState;
+                tr = mThrow;
+            }
+            postH.handle(st, tr);
         } catch (Throwable tr) {
             synchronized (mLock) {
                 mState |= STATE_POST_FAILED;
@@ -291,8 +463,13 @@ public class Request implements Runnable, Closeable {
                 mLock.notifyAll();
             }
         }
+    }
 
-        return success;
+    private void report(int state) {
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onStateChange(state);
+        }
     }
 
     @Override
@@ -313,4 +490,8 @@ public class Request implements Runnable, Closeable {
     protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
         runnable.run();
     }
+
+    public interface CancelListener {
+        void onCancel(@NonNull Request request);
+    }
 }
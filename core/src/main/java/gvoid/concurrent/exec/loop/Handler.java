@@ -21,26 +21,95 @@ import annotation.NonNull;
 import annotation.Nullable;
 import gvoid.concurrent.exec.Executable;
 import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.metrics.Metrics;
+import gvoid.concurrent.trace.FlightRecorder;
+import gvoid.concurrent.util.Clock;
 import java.io.Closeable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 @SuppressWarnings("unused")
 public class Handler implements Closeable {
     public static long RETRY_TIMEOUT = 20L;
+    public static long PARK_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(2L);
+    public static int MAX_ENTRY_POOL_SIZE = 64;
+    public static int MIN_PURGE_COUNT = 64;
+    public static double PURGE_RATIO = 0.25;
 
     @NonNull
     public final Object mLock;
+    @NonNull
+    public volatile Clock mClock;
+    /* Idle wait used by loopers that do not set their own */
+    @NonNull
+    public volatile WaitStrategy mWaitStrategy;
+    @Nullable
+    public volatile Metrics mMetrics;
+    @Nullable
+    public volatile SpillQueue mSpill;
 
     @GuardedBy("mLock")
     private volatile boolean mBusy;
     @GuardedBy("mLock")
     private final Deque<Request> mTasks;
     @GuardedBy("mLock")
-    private final List<Entry> mTimedTasks;
+    private Entry[] mTimedTasks;
+    @GuardedBy("mLock")
+    private int mTimedSize;
+    @GuardedBy("mLock")
+    private long mEntrySeq;
+    @GuardedBy("mLock")
+    private final Map<Object, Map<Request, Entry>> mTags;
+    @GuardedBy("mLock")
+    private int mCanceledCount;
+    @NonNull
+    private final Request.CancelListener mCancelListener;
+    @GuardedBy("mLock")
+    private Entry mEntryPool;
+    @GuardedBy("mLock")
+    private int mEntryPoolSize;
+    @GuardedBy("mLock")
+    private volatile long mVersion;
+    @GuardedBy("mLock")
+    private volatile long mPostCount;
+    @GuardedBy("mLock")
+    private Thread[] mParked;
+    @GuardedBy("mLock")
+    private int mParkedCount;
+    @GuardedBy("mLock")
+    private volatile long mSpillPending;
+    /* Spilled records are numbered in spill order, only tagged, canceled or still referenced ones keep heap state */
+    @GuardedBy("mLock")
+    private long mSpillHead;
+    @GuardedBy("mLock")
+    private long mSpillTail;
+    @GuardedBy("mLock")
+    private final Map<Long, SpillHandle> mSpillHandles;
+    @GuardedBy("mLock")
+    private final ReferenceQueue<Request> mSpillCollected;
+    @GuardedBy("mLock")
+    private final Set<Long> mSpillCanceled;
+    @GuardedBy("mLock")
+    private final Map<Long, Object> mSpillTagOf;
+    @GuardedBy("mLock")
+    private final Map<Object, Deque<Long>> mSpillTags;
+    @Nullable
+    volatile SelectorLooper mSelectorLooper;
+    @GuardedBy("mLock")
+    private boolean mSelecting;
 
     private volatile boolean mClosed;
 
@@ -54,14 +123,35 @@ public class Handler implements Closeable {
         }
 
         mLock = lock;
+        mClock = Clock.SYSTEM;
+        mWaitStrategy = WaitStrategy.BLOCKING;
 
         synchronized (mLock) {
             mBusy = false;
+            mVersion = 0L;
+            mPostCount = 0L;
+            mParked = new Thread[2];
+            mParkedCount = 0;
 
             mTasks = new ArrayDeque<>(8);
-            mTimedTasks = new ArrayList<>(8);
+            mSpillHead = 0L;
+            mSpillTail = 0L;
+            mSpillHandles = new HashMap<>();
+            mSpillCollected = new ReferenceQueue<>();
+            mSpillCanceled = new HashSet<>();
+            mSpillTagOf = new HashMap<>();
+            mSpillTags = new HashMap<>();
+            mTimedTasks = new Entry[8];
+            mTimedSize = 0;
+            mEntrySeq = 0L;
+            mTags = new HashMap<>();
+            mCanceledCount = 0;
+
+            mEntryPool = null;
+            mEntryPoolSize = 0;
         }
 
+        mCancelListener = this::onCancel;
         mClosed = false;
     }
 
@@ -86,94 +176,871 @@ public class Handler implements Closeable {
         return push(runnable, delay, null);
     }
 
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Object runnable, long delay, @NonNull TimeUnit unit) {
+        return enqueueDelayed(toRequest(runnable), unit.toNanos(delay));
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     @NonNull
     public final Request postAtTime(@NonNull Object runnable, long time) {
         return push(runnable, null, time);
     }
 
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtNanoTime(@NonNull Object runnable, long nanoTime) {
+        return enqueueAt(toRequest(runnable), nanoTime);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request post(@NonNull Runnable runnable) {
+        return enqueue(toRequest(runnable));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request post(@NonNull Executable<Request> exec) {
+        return enqueue(toRequest(exec));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request post(@NonNull Request request) {
+        return enqueue(request);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Runnable runnable, long delay) {
+        return enqueueDelayed(toRequest(runnable), TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Runnable runnable, long delay, @NonNull TimeUnit unit) {
+        return enqueueDelayed(toRequest(runnable), unit.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Executable<Request> exec, long delay) {
+        return enqueueDelayed(toRequest(exec), TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Executable<Request> exec, long delay, @NonNull TimeUnit unit) {
+        return enqueueDelayed(toRequest(exec), unit.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Request request, long delay) {
+        return enqueueDelayed(request, TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayed(@NonNull Request request, long delay, @NonNull TimeUnit unit) {
+        return enqueueDelayed(request, unit.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtTime(@NonNull Runnable runnable, long time) {
+        return enqueueAt(toRequest(runnable), toNanoTime(time));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtNanoTime(@NonNull Runnable runnable, long nanoTime) {
+        return enqueueAt(toRequest(runnable), nanoTime);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtTime(@NonNull Executable<Request> exec, long time) {
+        return enqueueAt(toRequest(exec), toNanoTime(time));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtNanoTime(@NonNull Executable<Request> exec, long nanoTime) {
+        return enqueueAt(toRequest(exec), nanoTime);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtTime(@NonNull Request request, long time) {
+        return enqueueAt(request, toNanoTime(time));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtNanoTime(@NonNull Request request, long nanoTime) {
+        return enqueueAt(request, nanoTime);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postWithTag(@NonNull Object runnable, @Nullable Object tag) {
+        Request request = toRequest(runnable);
+        request.mTag = tag;
+        return enqueue(request);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayedWithTag(@NonNull Object runnable, @Nullable Object tag, long delay) {
+        return postDelayedWithTag(runnable, tag, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postDelayedWithTag(@NonNull Object runnable, @Nullable Object tag,
+                                            long delay, @NonNull TimeUnit unit) {
+        Request request = toRequest(runnable);
+        request.mTag = tag;
+        return enqueueDelayed(request, unit.toNanos(delay));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final Request postAtTimeWithTag(@NonNull Object runnable, @Nullable Object tag, long time) {
+        Request request = toRequest(runnable);
+        request.mTag = tag;
+        return enqueueAt(request, toNanoTime(time));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postAtFixedRate(@NonNull Object runnable, long initialDelay, long period) {
+        return postAtFixedRate(runnable, initialDelay, period, TimeUnit.MILLISECONDS,
+                PeriodicRequest.DEFAULT_MISSED_POLICY);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postAtFixedRate(@NonNull Object runnable, long initialDelay, long period,
+                                                 int missedPolicy) {
+        return postAtFixedRate(runnable, initialDelay, period, TimeUnit.MILLISECONDS, missedPolicy);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postAtFixedRate(@NonNull Object runnable, long initialDelay, long period,
+                                                 @NonNull TimeUnit unit) {
+        return postAtFixedRate(runnable, initialDelay, period, unit,
+                PeriodicRequest.DEFAULT_MISSED_POLICY);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postAtFixedRate(@NonNull Object runnable, long initialDelay, long period,
+                                                 @NonNull TimeUnit unit, int missedPolicy) {
+        return pushPeriodic(runnable, unit.toNanos(initialDelay), unit.toNanos(period),
+                PeriodicRequest.MODE_FIXED_RATE, missedPolicy);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postWithFixedDelay(@NonNull Object runnable, long initialDelay, long delay) {
+        return postWithFixedDelay(runnable, initialDelay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @NonNull
+    public final PeriodicRequest postWithFixedDelay(@NonNull Object runnable, long initialDelay, long delay,
+                                                    @NonNull TimeUnit unit) {
+        return pushPeriodic(runnable, unit.toNanos(initialDelay), unit.toNanos(delay),
+                PeriodicRequest.MODE_FIXED_DELAY, PeriodicRequest.DEFAULT_MISSED_POLICY);
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     @NonNull
     protected Request push(@NonNull Object runnable, @Nullable Long delay, @Nullable Long time) {
         throwIfClosed();
 
+        Request request = toRequest(runnable);
+        if (delay == null && time == null) {
+            return enqueue(request);
+        } else if (delay == null) {
+            return enqueueAt(request, toNanoTime(time));
+        } else if (time == null) {
+            return enqueueDelayed(request, TimeUnit.MILLISECONDS.toNanos(delay));
+        } else {
+            return enqueueAt(request, toNanoTime(time + delay));
+        }
+    }
+
+    @NonNull
+    private Request enqueue(@NonNull Request request) {
+        throwIfClosed();
+
+        Metrics metrics = mMetrics;
+        if (metrics != null && request.mMetrics == null) {
+            request.mMetrics = metrics;
+        }
+        try {
+            request.mDueTime = getTime();
+        } catch (Throwable ignored) {
+        }
+        request.start();
+        push(request);
+        return request;
+    }
+
+    @NonNull
+    private Request enqueueDelayed(@NonNull Request request, long delay) {
+        throwIfClosed();
+
+        long time;
+        try {
+            time = addTime(getTime(), delay);
+        } catch (Throwable ignored) {
+            return enqueue(request);
+        }
+        return enqueueAt(request, time);
+    }
+
+    @NonNull
+    private Request enqueueAt(@NonNull Request request, long time) {
+        throwIfClosed();
+
+        Metrics metrics = mMetrics;
+        if (metrics != null && request.mMetrics == null) {
+            request.mMetrics = metrics;
+        }
+        request.mDueTime = time;
+        request.start();
+        synchronized (mLock) {
+            if (mClosed) return request;
+            push(obtainEntry(request, time));
+        }
+        return request;
+    }
+
+    @NonNull
+    protected PeriodicRequest pushPeriodic(@NonNull Object runnable, long initialDelay, long period,
+                                           int mode, int missedPolicy) {
+        throwIfClosed();
+
         //noinspection ConstantConditions
         if (runnable == null) {
             throw new NullPointerException("No runnable object attached");
         }
+        if (period <= 0L) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        if (runnable instanceof Request) {
+            throw new IllegalArgumentException("Requests can not be rearmed periodically");
+        }
 
-        Request request;
-        prepare: {
-            if (runnable instanceof Request) {
-                request = (Request) runnable;
-                break prepare;
+        PeriodicRequest request = new PeriodicRequest(this, null, mode, period, missedPolicy);
+        request.mMetrics = mMetrics;
+        if (runnable instanceof Runnable) {
+            request.mRunnable = (Runnable) runnable;
+        } else {
+            Executable<Request> exec = toExecutable(runnable);
+            if (exec == null) {
+                throw new IllegalArgumentException("Invalid runnable object");
             }
+            request.mExec = exec;
+        }
+        request.start();
+
+        long time = 0L;
+        try {
+            time = getTime();
+        } catch (Throwable ignored) {
+        }
+        request.schedule(addTime(time, Math.max(initialDelay, 0L)));
+        return request;
+    }
+
+    @NonNull
+    private static Request toRequest(@NonNull Object runnable) {
+        //noinspection ConstantConditions
+        if (runnable == null) {
+            throw new NullPointerException("No runnable object attached");
+        }
+        if (runnable instanceof Runnable) {
+            return toRequest((Runnable) runnable);
+        }
 
-            if (runnable instanceof Runnable) {
-                Runnable run = (Runnable) runnable;
-                runnable = (Executable<Request>) r -> run.run();
+        Executable<Request> exec = toExecutable(runnable);
+        if (exec == null) {
+            throw new IllegalArgumentException("Invalid runnable object");
+        }
+        return new Request(exec);
+    }
+
+    @NonNull
+    private static Request toRequest(@NonNull Runnable runnable) {
+        //noinspection ConstantConditions
+        if (runnable == null) {
+            throw new NullPointerException("No runnable object attached");
+        }
+        if (runnable instanceof Request) {
+            return (Request) runnable;
+        }
+
+        Request request = new Request();
+        request.mRunnable = runnable;
+        return request;
+    }
+
+    @NonNull
+    private static Request toRequest(@NonNull Executable<Request> exec) {
+        //noinspection ConstantConditions
+        if (exec == null) {
+            throw new NullPointerException("No executable attached");
+        }
+        return new Request(exec);
+    }
+
+    @Nullable
+    private static Executable<Request> toExecutable(@NonNull Object runnable) {
+        if (runnable instanceof Executable<?>) {
+            try {
+                //noinspection unchecked
+                return (Executable<Request>) runnable;
+            } catch (ClassCastException ignored) {
+                Executable<?> run = (Executable<?>) runnable;
+                return r -> run.execute(null);
             }
-            if (runnable instanceof Executable<?>) {
-                Executable<Request> exec;
+        }
+        return null;
+    }
+
+    private void push(@NonNull Request request) {
+        SpillQueue spill = mSpill;
+        byte[] data = spill != null && mSpillPending > 0L ? encode(spill, request) : null;
+
+        synchronized (mLock) {
+            if (mClosed) return;
+
+            spill:
+            if (spill != null && (mSpillPending > 0L || mTasks.size() >= spill.mHighWaterMark)) {
+                if (data == null) data = encode(spill, request);
+                if (data == null) break spill;
                 try {
-                    //noinspection unchecked
-                    exec = (Executable<Request>) runnable;
-                } catch (ClassCastException ignored) {
-                    Executable<?> run = (Executable<?>) runnable;
-                    exec = r -> run.execute(null);
+                    if (!spill.append(data)) break spill;
+                } catch (Throwable ignored) {
+                    break spill;
+                }
+                // Only the body moves to disk, the handle is remembered weakly in case the caller keeps it
+                long id = mSpillTail++;
+                request.mRunnable = null;
+                request.mExec = null;
+                request.mPostExec = null;
+                request.mCancelListener = r -> onSpillCancel(id);
+                expungeSpillHandles();
+                mSpillHandles.put(id, new SpillHandle(request, mSpillCollected, id));
+                Object tag = request.mTag;
+                if (tag != null) {
+                    mSpillTagOf.put(id, tag);
+                    mSpillTags.computeIfAbsent(tag, t -> new ArrayDeque<>(4)).offerLast(id);
                 }
-                runnable = new Request(exec);
+                mSpillPending++;
+                mPostCount++;
+                signal();
+                trace(request);
+                return;
             }
 
-            if (runnable instanceof Request) {
-                request = (Request) runnable;
-                break prepare;
+            mTasks.addFirst(request);
+            track(request, null);
+            mPostCount++;
+            signal();
+
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onEnqueue(mTasks.size() + mTimedSize);
             }
+            trace(request);
+        }
+    }
 
-            throw new IllegalArgumentException("Invalid runnable object");
+    @Nullable
+    private static byte[] encode(@NonNull SpillQueue spill, @NonNull Request request) {
+        try {
+            return spill.mCodec.encode(request);
+        } catch (Throwable ignored) {
+            return null;
         }
-        request.start();
+    }
 
-        if (delay == null && time == null) {
-            push(request);
-        } else if (delay == null) {
-            push(new Entry(request, time));
-        } else if (time == null) {
+    private void refill() {
+        SpillQueue spill = mSpill;
+        if (spill == null || mSpillPending == 0L) return;
+
+        List<byte[]> batch = new ArrayList<>(spill.mBatchSize);
+        Request[] handles;
+        Object[] tags;
+        boolean[] canceled;
+        synchronized (mLock) {
+            if (mTasks.size() > spill.mLowWaterMark) return;
+            // Polled under the lock so record ids can not drift from a concurrent removeAll()
+            spill.poll(spill.mBatchSize, batch);
+
+            int count = batch.size();
+            handles = new Request[count];
+            tags = new Object[count];
+            canceled = new boolean[count];
+            expungeSpillHandles();
+            for (int i = 0; i < count; i++) {
+                long id = mSpillHead++;
+                canceled[i] = mSpillCanceled.remove(id);
+                SpillHandle handle = mSpillHandles.remove(id);
+                if (handle != null) handles[i] = handle.get();
+                Object tag = mSpillTagOf.remove(id);
+                if (tag != null) {
+                    tags[i] = tag;
+                    removeSpillTag(tag, id);
+                }
+            }
+            mSpillPending = Math.max(mSpillPending - count, 0L);
+        }
+
+        Request[] requests = new Request[batch.size()];
+        List<Request> failed = null;
+        for (int i = 0; i < requests.length; i++) {
+            if (canceled[i]) continue;
+            Request handle = handles[i];
+            if (handle != null && !isValid(handle)) continue;
+
+            Request decoded;
             try {
-                time = getTime() + delay;
+                decoded = spill.mCodec.decode(batch.get(i));
             } catch (Throwable ignored) {
+                if (handle != null) {
+                    if (failed == null) failed = new ArrayList<>(2);
+                    failed.add(handle);
+                }
+                continue;
+            }
+            if (handle != null) {
+                // Reattach the body to the handle returned by post()
+                handle.mRunnable = decoded.mRunnable;
+                handle.mExec = decoded.mExec;
+                handle.mPostExec = decoded.mPostExec;
+                recycle(decoded);
+                requests[i] = handle;
+            } else {
+                // Nobody holds the original handle anymore, the decoded request takes its place
+                decoded.mTag = tags[i];
+                decoded.mMetrics = mMetrics;
+                try {
+                    decoded.mDueTime = getTime();
+                } catch (Throwable ignored) {
+                }
+                decoded.start();
+                requests[i] = decoded;
+            }
+        }
+
+        synchronized (mLock) {
+            for (Request request : requests) {
+                if (request == null) continue;
+                if (mClosed || !isValid(request)) continue;
+                mTasks.addFirst(request);
+                track(request, null);
+            }
+        }
+        if (failed != null) {
+            // A body that can not be restored will never run, end its handle instead of leaving it started
+            for (Request request : failed) {
+                request.cancel();
             }
-            if (time == null) push(request);
-            else push(new Entry(request, time));
-        } else {
-            time += delay;
-            push(new Entry(request, time));
         }
-        return request;
     }
 
-    private void push(@NonNull Request request) {
+    @GuardedBy("mLock")
+    private void expungeSpillHandles() {
+        Reference<? extends Request> reference;
+        while ((reference = mSpillCollected.poll()) != null) {
+            long id = ((SpillHandle) reference).mId;
+            if (mSpillHandles.get(id) == reference) mSpillHandles.remove(id);
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void removeSpillTag(@NonNull Object tag, long id) {
+        Deque<Long> ids = mSpillTags.get(tag);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) mSpillTags.remove(tag);
+    }
+
+    private void onSpillCancel(long id) {
+        synchronized (mLock) {
+            // Already refilled or removed
+            if (id < mSpillHead) return;
+            mSpillCanceled.add(id);
+            mSpillHandles.remove(id);
+            Object tag = mSpillTagOf.remove(id);
+            if (tag != null) removeSpillTag(tag, id);
+        }
+    }
+
+    private void push(@NonNull Entry entry) {
         synchronized (mLock) {
             if (mClosed) return;
 
-            mTasks.addFirst(request);
-            mLock.notifyAll();
+            offerEntry(entry);
+            track(entry.mRequest, entry);
+            mPostCount++;
+            signal();
+
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onEnqueue(mTasks.size() + mTimedSize);
+            }
+            trace(entry.mRequest);
         }
     }
 
-    private void push(@NonNull Entry entry) {
+    @GuardedBy("mLock")
+    private void trace(@NonNull Request request) {
+        if (!FlightRecorder.ENABLED) return;
+        if (request.mTraceId == 0L) {
+            request.mTraceId = FlightRecorder.nextId();
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_POST, FlightRecorder.SOURCE_REQUEST,
+                request.mTraceId, mTasks.size() + mTimedSize);
+    }
+
+    /* -------- Timed queue ------------ */
+    @GuardedBy("mLock")
+    private void offerEntry(@NonNull Entry entry) {
+        if (mTimedSize == mTimedTasks.length) {
+            mTimedTasks = Arrays.copyOf(mTimedTasks, mTimedSize * 2);
+        }
+        entry.mSeq = mEntrySeq++;
+        siftUp(mTimedSize++, entry);
+    }
+
+    @GuardedBy("mLock")
+    @Nullable
+    private Entry peekEntry() {
+        return mTimedSize > 0 ? mTimedTasks[0] : null;
+    }
+
+    @GuardedBy("mLock")
+    private boolean removeEntry(@NonNull Entry entry) {
+        int index = entry.mIndex;
+        if (index < 0 || index >= mTimedSize || mTimedTasks[index] != entry) return false;
+
+        int last = --mTimedSize;
+        Entry moved = mTimedTasks[last];
+        mTimedTasks[last] = null;
+        entry.mIndex = -1;
+        if (index != last) {
+            siftDown(index, moved);
+            if (mTimedTasks[index] == moved) siftUp(index, moved);
+        }
+        return true;
+    }
+
+    @GuardedBy("mLock")
+    private void siftUp(int index, @NonNull Entry entry) {
+        Entry[] entries = mTimedTasks;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Entry parentEntry = entries[parent];
+            if (Entry.compare(entry, parentEntry) >= 0) break;
+            entries[index] = parentEntry;
+            parentEntry.mIndex = index;
+            index = parent;
+        }
+        entries[index] = entry;
+        entry.mIndex = index;
+    }
+
+    @GuardedBy("mLock")
+    private void siftDown(int index, @NonNull Entry entry) {
+        Entry[] entries = mTimedTasks;
+        int size = mTimedSize, half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            Entry childEntry = entries[child];
+            int right = child + 1;
+            if (right < size && Entry.compare(entries[right], childEntry) < 0) {
+                childEntry = entries[child = right];
+            }
+            if (Entry.compare(entry, childEntry) <= 0) break;
+            entries[index] = childEntry;
+            childEntry.mIndex = index;
+            index = child;
+        }
+        entries[index] = entry;
+        entry.mIndex = index;
+    }
+
+    /* -------- Tags ------------------- */
+    /* A timed request is canceled through its entry, which finds its heap slot without a lookup */
+    @GuardedBy("mLock")
+    private void track(@NonNull Request request, @Nullable Entry entry) {
+        if (entry != null) {
+            entry.mHandler = this;
+            request.mCancelListener = entry;
+        } else request.mCancelListener = mCancelListener;
+        Object tag = request.mTag;
+        if (tag == null) return;
+        mTags.computeIfAbsent(tag, t -> new IdentityHashMap<>()).put(request, entry);
+    }
+
+    @GuardedBy("mLock")
+    private void untrack(@NonNull Request request) {
+        if (isTracked(request)) {
+            request.mCancelListener = null;
+        }
+        Object tag = request.mTag;
+        if (tag == null) return;
+        Map<Request, Entry> requests = mTags.get(tag);
+        if (requests == null) return;
+        requests.remove(request);
+        if (requests.isEmpty()) mTags.remove(tag);
+    }
+
+    @GuardedBy("mLock")
+    private boolean isTracked(@NonNull Request request) {
+        Request.CancelListener listener = request.mCancelListener;
+        return listener == mCancelListener
+                || listener instanceof Entry && ((Entry) listener).mHandler == this;
+    }
+
+    private void onCancel(@NonNull Request request) {
+        onCancel(request, null);
+    }
+
+    private void onCancel(@NonNull Request request, @Nullable Entry entry) {
+        synchronized (mLock) {
+            if (request.mCancelListener != (entry != null ? entry : mCancelListener)) return;
+            untrack(request);
+            removeCanceled(request, entry);
+        }
+    }
+
+    /* Timed entries leave their heap right away, immediate ones only from either end of the queue */
+    @GuardedBy("mLock")
+    private void removeCanceled(@NonNull Request request, @Nullable Entry entry) {
+        if (entry != null && entry.mRequest == request && removeEntry(entry)) {
+            recycleEntry(entry);
+            return;
+        }
+        if (entry == null) {
+            if (mTasks.peekFirst() == request) {
+                mTasks.pollFirst();
+                return;
+            }
+            if (mTasks.peekLast() == request) {
+                mTasks.pollLast();
+                return;
+            }
+        }
+        // Left for next() to skip and purge() to reclaim
+        mCanceledCount++;
+    }
+
+    /* Drops a request found invalid in a queue, settling the count onCancel() may have taken for it */
+    @GuardedBy("mLock")
+    private void drop(@NonNull Request request) {
+        if (!isTracked(request) && mCanceledCount > 0) mCanceledCount--;
+        untrack(request);
+        recycle(request);
+    }
+
+    public int countByTag(@NonNull Object tag) {
+        synchronized (mLock) {
+            Map<Request, Entry> requests = mTags.get(tag);
+            Deque<Long> spilled = mSpillTags.get(tag);
+            return (requests != null ? requests.size() : 0)
+                    + (spilled != null ? spilled.size() : 0);
+        }
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    public int cancelByTag(@NonNull Object tag) {
+        Map<Request, Entry> requests;
+        Deque<Long> spilledIds;
+        List<Request> spilled = null;
+        synchronized (mLock) {
+            requests = mTags.remove(tag);
+            spilledIds = mSpillTags.remove(tag);
+            if (requests == null && spilledIds == null) return 0;
+            if (requests == null) requests = new IdentityHashMap<>(0);
+
+            if (spilledIds != null) {
+                // Spilled records leave a tombstone, refill() drops them unread
+                for (Long id : spilledIds) {
+                    mSpillTagOf.remove(id);
+                    mSpillCanceled.add(id);
+                    SpillHandle handle = mSpillHandles.remove(id);
+                    Request request = handle != null ? handle.get() : null;
+                    if (request == null) continue;
+                    request.mCancelListener = null;
+                    if (spilled == null) spilled = new ArrayList<>();
+                    spilled.add(request);
+                }
+            }
+
+            for (Map.Entry<Request, Entry> item : requests.entrySet()) {
+                Request request = item.getKey();
+                if (isTracked(request)) {
+                    request.mCancelListener = null;
+                }
+                removeCanceled(request, item.getValue());
+            }
+        }
+
+        for (Request request : requests.keySet()) {
+            try {
+                request.cancel();
+            } catch (Throwable ignored) {
+            }
+        }
+        if (spilled != null) {
+            for (Request request : spilled) {
+                try {
+                    request.cancel();
+                } catch (Throwable ignored) {
+                }
+            }
+        }
+        return requests.size() + (spilledIds != null ? spilledIds.size() : 0);
+    }
+
+    /* -------- Purging ---------------- */
+    public void purge() {
+        synchronized (mLock) {
+            int size = 0;
+            Entry[] entries = mTimedTasks;
+            for (int i = 0; i < mTimedSize; i++) {
+                Entry entry = entries[i];
+                if (isValid(entry.mRequest)) {
+                    entries[size] = entry;
+                    entry.mIndex = size++;
+                } else {
+                    entry.mIndex = -1;
+                    untrack(entry.mRequest);
+                    recycle(entry.mRequest);
+                    recycleEntry(entry);
+                }
+            }
+            Arrays.fill(entries, size, mTimedSize, null);
+            mTimedSize = size;
+            for (int i = (size >>> 1) - 1; i >= 0; i--) {
+                siftDown(i, entries[i]);
+            }
+
+            mTasks.removeIf(request -> {
+                if (isValid(request)) return false;
+                untrack(request);
+                recycle(request);
+                return true;
+            });
+            mCanceledCount = 0;
+        }
+    }
+
+    private void purgeIfNeeded() {
+        synchronized (mLock) {
+            int canceled = mCanceledCount;
+            if (canceled < MIN_PURGE_COUNT) return;
+            if (canceled < (mTasks.size() + mTimedSize) * PURGE_RATIO) return;
+        }
+        purge();
+    }
+
+    @GuardedBy("mLock")
+    @NonNull
+    private Entry obtainEntry(@NonNull Request request, long atTime) {
+        Entry entry = mEntryPool;
+        if (entry == null) {
+            entry = new Entry(request, atTime);
+            entry.mPooled = true;
+            return entry;
+        }
+
+        mEntryPool = entry.mNextInPool;
+        mEntryPoolSize--;
+        entry.mNextInPool = null;
+        entry.mRequest = request;
+        entry.mAtTime = atTime;
+        return entry;
+    }
+
+    @GuardedBy("mLock")
+    private void recycleEntry(@NonNull Entry entry) {
+        if (!entry.mPooled) return;
+        if (mEntryPoolSize >= MAX_ENTRY_POOL_SIZE) return;
+
+        //noinspection ConstantConditions
+        entry.mRequest = null;
+        entry.mNextInPool = mEntryPool;
+        mEntryPool = entry;
+        mEntryPoolSize++;
+    }
+
+    void push(@NonNull Entry entry, long atTime) {
         synchronized (mLock) {
             if (mClosed) return;
 
-            int index = Collections.binarySearch(
-                    mTimedTasks, entry, Entry::compare
-            );
-            if (index < 0) index = ~index;
-            mTimedTasks.add(index, entry);
-            mLock.notifyAll();
+            removeEntry(entry);
+            entry.mAtTime = atTime;
+            entry.mRequest.mDueTime = atTime;
+            push(entry);
+        }
+    }
+
+    public int requestCount() {
+        synchronized (mLock) {
+            return (int) Math.min(mTasks.size() + mSpillPending, Integer.MAX_VALUE);
         }
     }
 
+    public long spilledRequestCount() {
+        return mSpillPending;
+    }
+
+    public int timedRequestCount() {
+        synchronized (mLock) {
+            return mTimedSize;
+        }
+    }
+
+    public long getPostCount() {
+        return mPostCount;
+    }
+
+    public long getOldestPendingAge() {
+        long time;
+        try {
+            time = getTime();
+        } catch (Throwable ignored) {
+            return -1L;
+        }
+
+        long age = -1L;
+        synchronized (mLock) {
+            Request request = mTasks.peekLast();
+            if (request != null && request.mDueTime != 0L) {
+                age = addTime(time, -request.mDueTime);
+            }
+
+            Entry entry = peekEntry();
+            if (entry != null) {
+                age = Math.max(age, addTime(time, -entry.mAtTime));
+            }
+        }
+        return age;
+    }
+
     @NonNull
     public final List<Request> getAll() {
         return getAll(false);
@@ -185,7 +1052,7 @@ public class Handler implements Closeable {
         synchronized (mLock) {
             int size = mTasks.size();
             if (!excludeTimed) {
-                size += mTimedTasks.size();
+                size += mTimedSize;
             }
             tmpTasks = new ArrayList<>(size);
             for (Request request : mTasks) {
@@ -193,8 +1060,9 @@ public class Handler implements Closeable {
                 tmpTasks.add(request);
             }
             if (!excludeTimed) {
-                for (Entry entry : mTimedTasks) {
-                    if (entry == null) continue;
+                Entry[] entries = Arrays.copyOf(mTimedTasks, mTimedSize);
+                Arrays.sort(entries, (e1, e2) -> Entry.compare(e2, e1));
+                for (Entry entry : entries) {
                     tmpTasks.add(entry.mRequest);
                 }
             }
@@ -230,17 +1098,43 @@ public class Handler implements Closeable {
 
     public void removeAll(boolean excludeTimed) {
         synchronized (mLock) {
+            for (Request request : mTasks) {
+                untrack(request);
+            }
             mTasks.clear();
+            SpillQueue spill = mSpill;
+            if (spill != null && mSpillPending > 0L) {
+                spill.clear();
+                mSpillPending = 0L;
+            }
+            mSpillHead = mSpillTail;
+            mSpillHandles.clear();
+            mSpillCanceled.clear();
+            mSpillTagOf.clear();
+            mSpillTags.clear();
             if (!excludeTimed) {
-                mTimedTasks.clear();
+                for (int i = 0; i < mTimedSize; i++) {
+                    Entry entry = mTimedTasks[i];
+                    entry.mIndex = -1;
+                    untrack(entry.mRequest);
+                }
+                Arrays.fill(mTimedTasks, 0, mTimedSize, null);
+                mTimedSize = 0;
             }
+            mCanceledCount = 0;
         }
     }
 
     @Nullable
     Request next(long timeout) throws InterruptedException {
+        return next(timeout, null);
+    }
+
+    @Nullable
+    Request next(long timeout, @Nullable WaitStrategy strategy) throws InterruptedException {
         if (mClosed) return null;
 
+        long version = mVersion;
         next: {
             if (mBusy) break next;
             synchronized (mLock) {
@@ -250,15 +1144,19 @@ public class Handler implements Closeable {
             if (mClosed) return null;
 
             try {
+                purgeIfNeeded();
+
                 boolean retry = false;
                 int size;
                 Entry entry = null;
+                Request timedRequest = null;
                 synchronized (mLock) {
-                    while ((size = mTimedTasks.size()) > 0) {
-                        entry = mTimedTasks.get(size - 1);
-                        if (entry != null
-                                && isValid(entry.mRequest)) break;
-                        mTimedTasks.remove(size - 1);
+                    while ((size = mTimedSize) > 0) {
+                        entry = mTimedTasks[0];
+                        if (isValid(entry.mRequest)) break;
+                        removeEntry(entry);
+                        drop(entry.mRequest);
+                        recycleEntry(entry);
                     }
                 }
                 entry:
@@ -273,51 +1171,56 @@ public class Handler implements Closeable {
                         timeout = timeout != 0L
                                   ? Math.min(timeout, remTime)
                                   : remTime;
-                        entry = null;
                         break entry;
                     }
 
                     boolean removed = false;
+                    timedRequest = entry.mRequest;
                     remove:
                     synchronized (mLock) {
-                        if (size > mTimedTasks.size()) break remove;
-                        Entry tmpEntry = mTimedTasks.get(size - 1);
-                        if (entry != tmpEntry) break remove;
-                        mTimedTasks.remove(size - 1);
+                        if (peekEntry() != entry) break remove;
+                        removeEntry(entry);
+                        untrack(timedRequest);
+                        recycleEntry(entry);
                         removed = true;
                     }
 
                     try {
-                        Request request = entry.mRequest;
-                        if (request.ready()) {
-                            return request;
+                        if (timedRequest.ready()) {
+                            return dequeued(timedRequest);
                         }
                     } catch (Throwable ignored) {
                         removed = false;
                     }
 
                     retry = true;
-                    if (!removed) entry = null;
-                } else entry = null;
+                    if (!removed) timedRequest = null;
+                }
 
                 if (mClosed) return null;
+                refill();
 
                 Request request = null;
                 synchronized (mLock) {
                     while ((size = mTasks.size()) > 0) {
                         request = mTasks.pollLast();
-                        if (request != null
-                                && isValid(request)) break;
+                        if (request == null) continue;
+                        if (isValid(request)) {
+                            untrack(request);
+                            break;
+                        }
+                        drop(request);
                     }
-                    if (entry != null && !mClosed) {
-                        mTasks.addFirst(entry.mRequest);
+                    if (timedRequest != null && !mClosed) {
+                        mTasks.addFirst(timedRequest);
+                        track(timedRequest, null);
                     }
                 }
                 request:
                 if (size > 0) {
                     try {
                         if (request.ready()) {
-                            return request;
+                            return dequeued(request);
                         }
                     } catch (Throwable ignored) {
                         break request;
@@ -327,6 +1230,7 @@ public class Handler implements Closeable {
                     synchronized (mLock) {
                         if (!mClosed) {
                             mTasks.addFirst(request);
+                            track(request, null);
                         }
                     }
                 }
@@ -334,7 +1238,7 @@ public class Handler implements Closeable {
                 if (!retry) break next;
                 if (mClosed) return null;
 
-                long retryTimeout = RETRY_TIMEOUT;
+                long retryTimeout = TimeUnit.MILLISECONDS.toNanos(RETRY_TIMEOUT);
                 timeout = timeout != 0L
                           ? Math.min(timeout, retryTimeout)
                           : retryTimeout;
@@ -344,26 +1248,195 @@ public class Handler implements Closeable {
         }
 
         if (timeout >= 0L && !mClosed) {
-            synchronized (mLock) {
-                mLock.wait(timeout);
-            }
+            await(version, timeout, strategy);
             return next(-1L);
         } else {
             return null;
         }
     }
 
+    @NonNull
+    private Request dequeued(@NonNull Request request) {
+        Metrics metrics = mMetrics;
+        if (metrics == null) return request;
+
+        try {
+            int depth;
+            synchronized (mLock) {
+                depth = mTasks.size() + mTimedSize;
+            }
+            long dueTime = request.mDueTime;
+            metrics.onDequeue(dueTime != 0L ? addTime(getTime(), -dueTime) : 0L, depth);
+        } catch (Throwable ignored) {
+        }
+        return request;
+    }
+
+    private void await(long version, long timeout, @Nullable WaitStrategy strategy)
+            throws InterruptedException {
+        SelectorLooper selectorLooper = mSelectorLooper;
+        if (selectorLooper != null && selectorLooper.getThread() == Thread.currentThread()) {
+            awaitSelect(selectorLooper, version, timeout);
+            return;
+        }
+
+        if (strategy == null) strategy = mWaitStrategy;
+        int mode = strategy.mMode;
+        if (mode != WaitStrategy.MODE_BLOCK) {
+            long spinNanos = timeout > 0L
+                             ? Math.min(strategy.mSpinNanos, timeout)
+                             : strategy.mSpinNanos;
+            long start = System.nanoTime();
+            if (spinNanos > 0L && awaitSpin(version, start, spinNanos, false)) return;
+            if (timeout > 0L) {
+                timeout -= System.nanoTime() - start;
+                if (timeout <= 0L) return;
+            }
+
+            if (mode == WaitStrategy.MODE_SPIN_YIELD) {
+                awaitSpin(version, System.nanoTime(), timeout > 0L ? timeout : Long.MAX_VALUE, true);
+            } else if (mode == WaitStrategy.MODE_SPIN_PARK) {
+                awaitPark(version, timeout);
+            }
+            return;
+        }
+
+        if (timeout <= 0L || timeout > PARK_THRESHOLD) {
+            synchronized (mLock) {
+                if (mVersion != version || mClosed) return;
+                if (timeout <= 0L) {
+                    mLock.wait();
+                } else {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(timeout - PARK_THRESHOLD / 2L);
+                    mLock.wait(Math.max(millis, 1L));
+                }
+            }
+            return;
+        }
+        awaitPark(version, timeout);
+    }
+
+    /* Lock-free poll of the version, returns whether a signal arrived before the budget ran out */
+    private boolean awaitSpin(long version, long start, long spinNanos, boolean yield)
+            throws InterruptedException {
+        while (true) {
+            if (mVersion != version || mClosed) return true;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - start >= spinNanos) return false;
+            if (yield) {
+                Thread.yield();
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void awaitPark(long version, long timeout) throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        synchronized (mLock) {
+            if (mVersion != version || mClosed) return;
+            if (mParkedCount >= mParked.length) {
+                Thread[] parked = new Thread[mParked.length * 2];
+                System.arraycopy(mParked, 0, parked, 0, mParkedCount);
+                mParked = parked;
+            }
+            mParked[mParkedCount++] = thread;
+        }
+        try {
+            if (timeout > 0L) {
+                LockSupport.parkNanos(this, timeout);
+            } else {
+                LockSupport.park(this);
+            }
+        } finally {
+            synchronized (mLock) {
+                for (int i = 0; i < mParkedCount; i++) {
+                    if (mParked[i] != thread) continue;
+                    mParked[i] = mParked[--mParkedCount];
+                    mParked[mParkedCount] = null;
+                    break;
+                }
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void awaitSelect(@NonNull SelectorLooper looper, long version, long timeout)
+            throws InterruptedException {
+        synchronized (mLock) {
+            if (mVersion != version || mClosed) return;
+            mSelecting = true;
+        }
+        try {
+            looper.select(timeout);
+        } finally {
+            synchronized (mLock) {
+                mSelecting = false;
+            }
+        }
+        looper.dispatchSelected();
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /* Wakes a looper blocked, spinning or parked in next() so it can observe a state change */
+    void wake() {
+        synchronized (mLock) {
+            signal();
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void signal() {
+        mVersion++;
+        mLock.notifyAll();
+        for (int i = 0; i < mParkedCount; i++) {
+            LockSupport.unpark(mParked[i]);
+        }
+        if (mSelecting) {
+            SelectorLooper selectorLooper = mSelectorLooper;
+            if (selectorLooper != null) selectorLooper.wakeup();
+        }
+    }
+
     @Override
     public void close() {
         synchronized (mLock) {
             mClosed = true;
-            mLock.notifyAll();
+            signal();
         }
         removeAll(false);
     }
 
     protected long getTime() {
-        return System.currentTimeMillis();
+        return mClock.nanoTime();
+    }
+
+    protected long toNanoTime(long time) {
+        Clock clock = mClock;
+        long nanoTime = clock.nanoTime();
+        long delay = TimeUnit.MILLISECONDS.toNanos(time - clock.currentTimeMillis());
+        return addTime(nanoTime, delay);
+    }
+
+    static long addTime(long time, long delay) {
+        long result = time + delay;
+        if (((time ^ result) & (delay ^ result)) < 0L) {
+            return delay < 0L ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return result;
+    }
+
+    private static void recycle(@NonNull Request request) {
+        try {
+            request.recycle();
+        } catch (Throwable ignored) {
+        }
     }
 
     protected static boolean isValid(@NonNull Request request) {
@@ -375,24 +1448,52 @@ public class Handler implements Closeable {
         }
     }
 
-    private static class Entry {
+    static class Entry implements Request.CancelListener {
+        @GuardedBy("Handler.mLock")
         @NonNull
-        public final Request mRequest;
-        public final long mAtTime;
+        public Request mRequest;
+        @GuardedBy("Handler.mLock")
+        public long mAtTime;
 
-        private Entry(@NonNull Request request, long atTime) {
+        @GuardedBy("Handler.mLock")
+        private long mSeq;
+        @GuardedBy("Handler.mLock")
+        private int mIndex = -1;
+        @GuardedBy("Handler.mLock")
+        private boolean mPooled;
+        @GuardedBy("Handler.mLock")
+        private Entry mNextInPool;
+        @Nullable
+        private volatile Handler mHandler;
+
+        Entry(@NonNull Request request, long atTime) {
             mRequest = request;
             mAtTime = atTime;
         }
 
+        @Override
+        public void onCancel(@NonNull Request request) {
+            Handler handler = mHandler;
+            if (handler != null) handler.onCancel(request, this);
+        }
+
         public long getRemTime(long time) {
-            return Math.max(mAtTime - time, 0L);
+            return Math.max(addTime(mAtTime, -time), 0L);
         }
 
         public static int compare(@NonNull Entry e1, @NonNull Entry e2) {
-            long diff = e2.mAtTime - e1.mAtTime;
-            diff /= diff < 0L ? -diff : diff;
-            return (int) diff;
+            // nanoTime deadlines are only ordered by their difference, which survives wrap-around
+            int result = Long.compare(e1.mAtTime - e2.mAtTime, 0L);
+            return result != 0 ? result : Long.compare(e1.mSeq, e2.mSeq);
+        }
+    }
+
+    private static final class SpillHandle extends WeakReference<Request> {
+        final long mId;
+
+        SpillHandle(@NonNull Request request, @NonNull ReferenceQueue<Request> queue, long id) {
+            super(request, queue);
+            mId = id;
         }
     }
 }
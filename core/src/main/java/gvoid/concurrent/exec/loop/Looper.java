@@ -20,6 +20,9 @@ import annotation.GuardedBy;
 import annotation.NonNull;
 import annotation.Nullable;
 import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.metrics.Metrics;
+import gvoid.concurrent.trace.FlightRecorder;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unused")
 public class Looper implements Runnable {
@@ -31,6 +34,10 @@ public class Looper implements Runnable {
     public static final long NO_TIMEOUT = 0L;
 
     public static long DEFAULT_TIMEOUT = 700L;
+    @Nullable
+    public static volatile LooperWatchdog WATCHDOG;
+
+    private static final ThreadLocal<Looper> sLooper = new ThreadLocal<>();
 
     @NonNull
     public final Object mLock;
@@ -38,10 +45,22 @@ public class Looper implements Runnable {
     public volatile Handler mHandler;
     @Nullable
     public volatile FailHandler mFailHandler;
+    @Nullable
+    public volatile Metrics mMetrics;
+    /* Idle wait of this looper, falls back to the handler's when unset */
+    @Nullable
+    public volatile WaitStrategy mWaitStrategy;
 
     @GuardedBy("mLock")
     private volatile int mState;
 
+    private volatile long mHandledCount;
+
+    volatile LooperWatchdog mWatchdog;
+    private volatile Thread mThread;
+    private volatile Request mCurrent;
+    private volatile long mCurrentStart;
+
     public Looper() {
         this(null, null, null);
     }
@@ -75,6 +94,34 @@ public class Looper implements Runnable {
         return mState;
     }
 
+    public long getHandledCount() {
+        return mHandledCount;
+    }
+
+    @Nullable
+    public Thread getThread() {
+        return mThread;
+    }
+
+    @Nullable
+    public Request getCurrentRequest() {
+        return mCurrent;
+    }
+
+    public long getCurrentStartTime() {
+        return mCurrentStart;
+    }
+
+    @Nullable
+    public LooperWatchdog getWatchdog() {
+        return mWatchdog;
+    }
+
+    @Nullable
+    public static Looper myLooper() {
+        return sLooper.get();
+    }
+
     public final boolean isState(int s) {
         return (getState() & s) == s;
     }
@@ -107,11 +154,7 @@ public class Looper implements Runnable {
         }
 
         Handler handler = mHandler;
-        if (handler != null) {
-            synchronized (handler.mLock) {
-                handler.mLock.notifyAll();
-            }
-        }
+        if (handler != null) handler.wake();
     }
 
     @SuppressWarnings("UnusedReturnValue")
@@ -130,6 +173,11 @@ public class Looper implements Runnable {
 
     @SuppressWarnings("UnusedReturnValue")
     public boolean handle(long timeout) throws InterruptedException {
+        return handle(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean handle(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
         Handler handler = mHandler;
         synchronized (mLock) {
             int state = mState;
@@ -143,22 +191,51 @@ public class Looper implements Runnable {
             if ((state & STATE_STARTED) != STATE_STARTED) return false;
         }
 
+        Metrics metrics = mMetrics;
+        long startTime = metrics != null ? System.nanoTime() : 0L;
+
         Request request;
         Throwable throwable = null;
         handle:
         try {
             //noinspection ConstantConditions
-            request = handler.next(timeout);
-            if (request == null) return false;
+            request = handler.next(timeout > 0L ? unit.toNanos(timeout) : timeout, mWaitStrategy);
+            if (request == null) {
+                if (metrics != null) {
+                    metrics.onLoop(System.nanoTime() - startTime, 0L);
+                }
+                return false;
+            }
 
             synchronized (mLock) {
                 if ((mState & STATE_STARTED) != STATE_STARTED) break handle;
             }
+            mHandledCount++;
+            FlightRecorder.record(FlightRecorder.EVENT_READY, FlightRecorder.SOURCE_REQUEST,
+                    request.mTraceId, request.getState());
 
+            long execTime = metrics != null ? System.nanoTime() : 0L;
+            boolean watched = mWatchdog != null;
+            if (watched) {
+                mThread = Thread.currentThread();
+                mCurrentStart = System.nanoTime();
+                mCurrent = request;
+            }
+            boolean success = false;
             try {
-                if (request.execute()) return true;
+                success = request.execute();
             } catch (Throwable tr) {
                 throwable = tr;
+            } finally {
+                if (watched) mCurrent = null;
+            }
+            if (metrics != null) {
+                metrics.onLoop(execTime - startTime, System.nanoTime() - execTime);
+                if (throwable != null) metrics.onFailure(throwable);
+            }
+            if (success) {
+                recycle(request);
+                return true;
             }
         } finally {
             handler = mHandler;
@@ -181,19 +258,37 @@ public class Looper implements Runnable {
             } catch (Exception ignored) {
             }
         }
+        recycle(request);
         return true;
     }
 
+    private static void recycle(@NonNull Request request) {
+        if (!request.isRecyclable()) return;
+        try {
+            request.recycle();
+        } catch (Throwable ignored) {
+        }
+    }
+
     @Override
     public void run() {
         long timeout = DEFAULT_TIMEOUT;
         timeout = Math.max(timeout, 0L);
 
+        LooperWatchdog watchdog = WATCHDOG;
+        boolean watched = watchdog != null && mWatchdog == null;
+        if (watched) watchdog.watch(this);
+
+        mThread = Thread.currentThread();
+        sLooper.set(this);
         try {
             while (isReady()) {
                 handle(timeout);
             }
         } catch (InterruptedException ignored) {
+        } finally {
+            sLooper.remove();
+            if (watched) watchdog.unwatch(this);
         }
     }
 
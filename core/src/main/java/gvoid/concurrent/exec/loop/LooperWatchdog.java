@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.exec.loop;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+public class LooperWatchdog implements Runnable, Closeable {
+    public static long DEFAULT_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(500L);
+    public static long MIN_PERIOD = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /* Frames which park or sleep the calling thread */
+    public static final String[] BLOCKING_FRAMES = {
+            "java.lang.Thread.sleep",
+            "java.lang.Object.wait",
+            "java.util.concurrent.locks.LockSupport.park",
+            "java.util.concurrent.locks.LockSupport.parkNanos",
+            "java.util.concurrent.locks.LockSupport.parkUntil",
+            "java.util.concurrent.FutureTask.get",
+            "java.util.concurrent.CompletableFuture.get",
+            "java.util.concurrent.CompletableFuture.join",
+            "java.util.concurrent.CountDownLatch.await",
+            "java.lang.Thread.join",
+            "gvoid.concurrent.task.TaskWait.",
+    };
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final Callback mCallback;
+    public final long mThreshold;
+    public final long mPeriod;
+    public volatile boolean mDetectBlocking;
+
+    @GuardedBy("mLock")
+    private final List<Watch> mWatches;
+    @GuardedBy("mLock")
+    private Thread mThread;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    public LooperWatchdog(@NonNull Callback callback) {
+        this(callback, DEFAULT_THRESHOLD, TimeUnit.NANOSECONDS);
+    }
+
+    public LooperWatchdog(@NonNull Callback callback, long threshold, @NonNull TimeUnit unit) {
+        //noinspection ConstantConditions
+        if (callback == null) {
+            throw new NullPointerException("No callback attached");
+        }
+        if (threshold <= 0L) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+
+        mLock = new Object();
+        mCallback = callback;
+        mThreshold = unit.toNanos(threshold);
+        mPeriod = Math.max(mThreshold / 4L, MIN_PERIOD);
+        mDetectBlocking = false;
+        mWatches = new ArrayList<>();
+    }
+
+    /* -------- Lifecycle -------------- */
+    @NonNull
+    public LooperWatchdog start() {
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Watchdog is closed");
+            }
+            if (mThread != null) return this;
+
+            Thread thread = new Thread(this, "LooperWatchdog");
+            thread.setDaemon(true);
+            mThread = thread;
+            thread.start();
+            return this;
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        List<Watch> watches;
+        synchronized (mLock) {
+            mClosed = true;
+            thread = mThread;
+            mThread = null;
+            watches = new ArrayList<>(mWatches);
+            mWatches.clear();
+            mLock.notifyAll();
+        }
+        for (Watch watch : watches) {
+            if (watch.mLooper.mWatchdog == this) {
+                watch.mLooper.mWatchdog = null;
+            }
+        }
+        if (thread != null) thread.interrupt();
+    }
+
+    @NonNull
+    public LooperWatchdog watch(@NonNull Looper looper) {
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Watchdog is closed");
+            }
+            for (Watch watch : mWatches) {
+                if (watch.mLooper == looper) return this;
+            }
+            mWatches.add(new Watch(looper));
+            looper.mWatchdog = this;
+            return this;
+        }
+    }
+
+    @NonNull
+    public LooperWatchdog unwatch(@NonNull Looper looper) {
+        synchronized (mLock) {
+            mWatches.removeIf(watch -> watch.mLooper == looper);
+        }
+        if (looper.mWatchdog == this) {
+            looper.mWatchdog = null;
+        }
+        return this;
+    }
+
+    public int watchCount() {
+        synchronized (mLock) {
+            return mWatches.size();
+        }
+    }
+
+    /* -------- Monitoring ------------- */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                synchronized (mLock) {
+                    if (mClosed || mThread != Thread.currentThread()) return;
+                }
+                check();
+
+                long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(mPeriod), 1L);
+                synchronized (mLock) {
+                    if (mClosed) return;
+                    mLock.wait(millis);
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    public void check() {
+        Watch[] watches;
+        synchronized (mLock) {
+            watches = mWatches.toArray(new Watch[0]);
+        }
+
+        long time = System.nanoTime();
+        for (Watch watch : watches) {
+            try {
+                check(watch, time);
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
+    private void check(@NonNull Watch watch, long time) {
+        Looper looper = watch.mLooper;
+        Request request = looper.getCurrentRequest();
+        long startTime = looper.getCurrentStartTime();
+        Thread thread = looper.getThread();
+        if (request == null || thread == null) return;
+        if (request != looper.getCurrentRequest()) return;
+        if (watch.mRequest == request && watch.mStartTime == startTime
+                && watch.mStalled && (!mDetectBlocking || watch.mBlocked)) return;
+
+        if (watch.mRequest != request || watch.mStartTime != startTime) {
+            watch.mRequest = request;
+            watch.mStartTime = startTime;
+            watch.mStalled = false;
+            watch.mBlocked = false;
+        }
+
+        long duration = time - startTime;
+        boolean stalled = !watch.mStalled && duration >= mThreshold;
+        boolean blocked = false;
+        if (mDetectBlocking && !watch.mBlocked) {
+            Thread.State state = thread.getState();
+            blocked = state == Thread.State.WAITING
+                    || state == Thread.State.TIMED_WAITING
+                    || state == Thread.State.BLOCKED;
+        }
+        if (!stalled && !blocked) return;
+
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        if (request != looper.getCurrentRequest()) return;
+
+        StackTraceElement blockingFrame = blocked ? findBlockingFrame(stackTrace) : null;
+        if (blockingFrame != null) {
+            watch.mBlocked = true;
+            mCallback.onBlocking(new Report(looper, request, thread, startTime,
+                    duration, stackTrace, blockingFrame));
+        }
+        if (stalled) {
+            watch.mStalled = true;
+            mCallback.onStall(new Report(looper, request, thread, startTime,
+                    duration, stackTrace, findBlockingFrame(stackTrace)));
+        }
+    }
+
+    /* -------- Blocking calls --------- */
+    public static void checkBlockingCall() {
+        Looper looper = Looper.myLooper();
+        if (looper == null) return;
+        LooperWatchdog watchdog = looper.mWatchdog;
+        if (watchdog == null || !watchdog.mDetectBlocking) return;
+        Request request = looper.getCurrentRequest();
+        if (request == null) return;
+
+        Thread thread = Thread.currentThread();
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        long startTime = looper.getCurrentStartTime();
+        try {
+            watchdog.mCallback.onBlocking(new Report(looper, request, thread, startTime,
+                    System.nanoTime() - startTime, stackTrace, findBlockingFrame(stackTrace)));
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Nullable
+    private static StackTraceElement findBlockingFrame(@NonNull StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            String name = element.getClassName() + "." + element.getMethodName();
+            for (String frame : BLOCKING_FRAMES) {
+                if (name.startsWith(frame)) return element;
+            }
+        }
+        return null;
+    }
+
+    private static final class Watch {
+        @NonNull
+        final Looper mLooper;
+        Request mRequest;
+        long mStartTime;
+        boolean mStalled;
+        boolean mBlocked;
+
+        Watch(@NonNull Looper looper) {
+            mLooper = looper;
+        }
+    }
+
+    public static final class Report {
+        @NonNull
+        public final Looper mLooper;
+        @NonNull
+        public final Request mRequest;
+        public final long mTraceId;
+        @NonNull
+        public final Thread mThread;
+        public final long mStartTime;
+        public final long mDuration;
+        @NonNull
+        public final StackTraceElement[] mStackTrace;
+        @Nullable
+        public final StackTraceElement mBlockingFrame;
+
+        Report(@NonNull Looper looper,
+               @NonNull Request request,
+               @NonNull Thread thread,
+               long startTime,
+               long duration,
+               @NonNull StackTraceElement[] stackTrace,
+               @Nullable StackTraceElement blockingFrame) {
+            mLooper = looper;
+            mRequest = request;
+            mTraceId = request.mTraceId;
+            mThread = thread;
+            mStartTime = startTime;
+            mDuration = duration;
+            mStackTrace = stackTrace;
+            mBlockingFrame = blockingFrame;
+        }
+
+        @NonNull
+        public Throwable toThrowable() {
+            Throwable throwable = new Throwable("Looper thread " + mThread.getName()
+                    + " stalled for " + TimeUnit.NANOSECONDS.toMillis(mDuration) + "ms on " + mRequest);
+            throwable.setStackTrace(mStackTrace);
+            return throwable;
+        }
+    }
+
+    public interface Callback {
+        void onStall(@NonNull Report report);
+
+        void onBlocking(@NonNull Report report);
+    }
+}
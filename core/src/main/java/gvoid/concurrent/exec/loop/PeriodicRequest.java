@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.exec.loop;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Executable;
+import gvoid.concurrent.exec.Request;
+
+@SuppressWarnings("unused")
+public class PeriodicRequest extends Request {
+    public static final int MODE_FIXED_RATE = 0x1;
+    public static final int MODE_FIXED_DELAY = 0x2;
+
+    /* Missed ticks are dropped and the next tick keeps its place in the schedule */
+    public static final int MISSED_SKIP = 0x1;
+    /* All missed ticks are collapsed into one immediate tick */
+    public static final int MISSED_COLLAPSE = 0x2;
+
+    public static int DEFAULT_MISSED_POLICY = MISSED_SKIP;
+
+    @NonNull
+    public final Handler mHandler;
+    public final int mMode;
+    public final long mPeriod;
+    public final int mMissedPolicy;
+
+    @NonNull
+    private final Handler.Entry mEntry;
+
+    @GuardedBy("mLock")
+    private volatile boolean mStopped;
+    @GuardedBy("mLock")
+    private volatile long mNextTime;
+
+    private volatile long mTicks;
+    private volatile long mMissedTicks;
+
+    PeriodicRequest(@NonNull Handler handler,
+                    @Nullable Executable<Request> exec,
+                    int mode,
+                    long period,
+                    int missedPolicy) {
+        super(exec);
+
+        mHandler = handler;
+        mMode = mode;
+        mPeriod = period;
+        mMissedPolicy = missedPolicy;
+
+        mEntry = new Handler.Entry(this, 0L);
+
+        synchronized (mLock) {
+            mStopped = false;
+            mNextTime = 0L;
+        }
+        mTicks = 0L;
+        mMissedTicks = 0L;
+    }
+
+    public final boolean isStopped() {
+        return mStopped;
+    }
+
+    public final long getNextTime() {
+        return mNextTime;
+    }
+
+    public final long getTicks() {
+        return mTicks;
+    }
+
+    public final long getMissedTicks() {
+        return mMissedTicks;
+    }
+
+    void schedule(long time) {
+        synchronized (mLock) {
+            if (mStopped) return;
+            mNextTime = time;
+        }
+        mHandler.push(mEntry, time);
+    }
+
+    private void reschedule() {
+        long time;
+        try {
+            time = mHandler.getTime();
+        } catch (Throwable ignored) {
+            time = mNextTime;
+        }
+
+        long nextTime;
+        synchronized (mLock) {
+            if (mStopped) return;
+            if (!isSuccess() || mHandler.isClosed()) {
+                mStopped = true;
+                return;
+            }
+
+            if (mMode == MODE_FIXED_DELAY) {
+                nextTime = time + mPeriod;
+            } else {
+                nextTime = mNextTime + mPeriod;
+                if (nextTime <= time) {
+                    long missed = (time - nextTime) / mPeriod + 1L;
+                    if (mMissedPolicy == MISSED_COLLAPSE) {
+                        nextTime += (missed - 1L) * mPeriod;
+                        mMissedTicks += missed - 1L;
+                    } else {
+                        nextTime += missed * mPeriod;
+                        mMissedTicks += missed;
+                    }
+                }
+            }
+
+            if (!rearm()) {
+                mStopped = true;
+                return;
+            }
+            mNextTime = nextTime;
+        }
+        mHandler.push(mEntry, nextTime);
+    }
+
+    @Override
+    public boolean execute() {
+        boolean success = super.execute();
+        if (success) mTicks++;
+        if (isDone()) reschedule();
+        return success;
+    }
+
+    @Override
+    public boolean cancel() {
+        synchronized (mLock) {
+            boolean stopped = mStopped;
+            mStopped = true;
+            return super.cancel() || !stopped;
+        }
+    }
+}
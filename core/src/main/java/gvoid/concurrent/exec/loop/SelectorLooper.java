@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.exec.loop;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Executable;
+import gvoid.concurrent.exec.Request;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looper whose idle wait is a {@link Selector} select, posts wake it up via {@link Selector#wakeup()}.
+ * Channel readiness is dispatched as requests on the looper thread, in order with posted requests.
+ */
+@SuppressWarnings("unused")
+public class SelectorLooper extends Looper implements Closeable {
+    public static int SELECT_NOW_INTERVAL = 32;
+
+    @NonNull
+    public final Selector mSelector;
+
+    @NonNull
+    private final Object mRegisterLock;
+    private int mHandledSinceSelect;
+
+    public SelectorLooper(@NonNull Handler handler) throws IOException {
+        this(handler, null, null);
+    }
+
+    public SelectorLooper(@NonNull Handler handler,
+                          @Nullable FailHandler failHandler) throws IOException {
+        this(handler, failHandler, null);
+    }
+
+    protected SelectorLooper(@NonNull Handler handler,
+                             @Nullable FailHandler failHandler,
+                             @Nullable Object lock) throws IOException {
+        super(handler, failHandler, lock);
+
+        synchronized (handler.mLock) {
+            if (handler.mSelectorLooper != null) {
+                throw new IllegalStateException("Handler already has a selector looper");
+            }
+            mSelector = Selector.open();
+            handler.mSelectorLooper = this;
+        }
+        mRegisterLock = new Object();
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static SelectorLooper create() throws IOException {
+        return new SelectorLooper(new Handler());
+    }
+
+    @NonNull
+    public static SelectorLooper create(@Nullable FailHandler failHandler) throws IOException {
+        return new SelectorLooper(new Handler(), failHandler);
+    }
+
+    /* -------- Channels --------------- */
+    /* May be called from any thread, a running select is woken up to let the registration in */
+    @NonNull
+    public SelectionKey register(@NonNull SelectableChannel channel,
+                                 int ops,
+                                 @NonNull ChannelHandler channelHandler) throws IOException {
+        channel.configureBlocking(false);
+        Registration registration = new Registration(channelHandler);
+        if (getThread() == Thread.currentThread()) {
+            return channel.register(mSelector, ops, registration);
+        }
+        synchronized (mRegisterLock) {
+            mSelector.wakeup();
+            return channel.register(mSelector, ops, registration);
+        }
+    }
+
+    public void unregister(@NonNull SelectableChannel channel) {
+        SelectionKey key = channel.keyFor(mSelector);
+        if (key != null) key.cancel();
+    }
+
+    public void wakeup() {
+        mSelector.wakeup();
+    }
+
+    /* -------- Selecting -------------- */
+    void select(long timeout) {
+        //noinspection EmptySynchronizedStatement
+        synchronized (mRegisterLock) {
+        }
+        mHandledSinceSelect = 0;
+        try {
+            if (timeout <= 0L) {
+                mSelector.select();
+            } else {
+                mSelector.select(Math.max(TimeUnit.NANOSECONDS.toMillis(timeout), 1L));
+            }
+        } catch (IOException | ClosedSelectorException ignored) {
+        }
+    }
+
+    void dispatchSelected() {
+        Handler handler = mHandler;
+        Set<SelectionKey> selected;
+        try {
+            selected = mSelector.selectedKeys();
+        } catch (ClosedSelectorException ignored) {
+            return;
+        }
+
+        Iterator<SelectionKey> iterator = selected.iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            Registration registration = (Registration) key.attachment();
+            if (registration == null || registration.mPending) continue;
+            try {
+                registration.mKey = key;
+                registration.mReadyOps = key.readyOps();
+            } catch (CancelledKeyException ignored) {
+                continue;
+            }
+
+            if (handler == null || handler.isClosed()) continue;
+            registration.mPending = true;
+            try {
+                handler.post(Request.obtain(registration));
+            } catch (Throwable tr) {
+                registration.mPending = false;
+            }
+        }
+    }
+
+    @Override
+    public boolean handle(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        // Keep channels serviced while the queue never runs dry
+        if (++mHandledSinceSelect >= SELECT_NOW_INTERVAL
+                && getThread() == Thread.currentThread()) {
+            mHandledSinceSelect = 0;
+            try {
+                if (mSelector.selectNow() > 0) dispatchSelected();
+            } catch (IOException | ClosedSelectorException ignored) {
+            }
+        }
+        return super.handle(timeout, unit);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        mSelector.wakeup();
+    }
+
+    @Override
+    public void close() {
+        stop();
+
+        Handler handler = mHandler;
+        if (handler != null) {
+            synchronized (handler.mLock) {
+                if (handler.mSelectorLooper == this) handler.mSelectorLooper = null;
+            }
+        }
+        try {
+            mSelector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Registration implements Executable<Request> {
+        @NonNull
+        final ChannelHandler mChannelHandler;
+        volatile SelectionKey mKey;
+        volatile int mReadyOps;
+        volatile boolean mPending;
+
+        Registration(@NonNull ChannelHandler channelHandler) {
+            mChannelHandler = channelHandler;
+        }
+
+        @Override
+        public void execute(Request request) throws Exception {
+            try {
+                SelectionKey key = mKey;
+                if (key.isValid()) mChannelHandler.onReady(key, mReadyOps);
+            } finally {
+                mPending = false;
+            }
+        }
+    }
+
+    public interface ChannelHandler {
+        void onReady(@NonNull SelectionKey key, int readyOps) throws Exception;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.exec.loop;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Executable;
+import gvoid.concurrent.exec.Handleable;
+import gvoid.concurrent.exec.Request;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Memory-mapped overflow segments for a {@link Handler} queue past its high-water mark.
+ * A spilled request keeps no heap state of its own unless it is tagged, canceled or its
+ * handle is still referenced by the caller, the handle then gets its body back on refill.
+ */
+@SuppressWarnings("unused")
+public class SpillQueue implements Closeable {
+    public static int DEFAULT_HIGH_WATER_MARK = 100000;
+    public static int DEFAULT_BATCH_SIZE = 1024;
+    public static int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /* Releases a mapping right away instead of waiting for the buffer to be collected */
+    @Nullable
+    private static final Object CLEANER;
+    @Nullable
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object cleaner = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            cleaner = field.get(null);
+        } catch (Throwable ignored) {
+            invokeCleaner = null;
+        }
+        CLEANER = cleaner;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final File mDir;
+    @NonNull
+    public final Codec mCodec;
+    public final int mHighWaterMark;
+    public final int mLowWaterMark;
+    public final int mBatchSize;
+    public final int mSegmentSize;
+
+    @GuardedBy("mLock")
+    private final Deque<Segment> mSegments;
+    @GuardedBy("mLock")
+    private long mNextSeq;
+    @GuardedBy("mLock")
+    private long mSize;
+    @GuardedBy("mLock")
+    private long mSpilledCount;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    protected SpillQueue(@NonNull File dir,
+                         @NonNull Codec codec,
+                         int highWaterMark,
+                         int batchSize,
+                         int segmentSize) {
+        if (highWaterMark <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Water mark and batch size must be positive");
+        }
+
+        mLock = new Object();
+        mDir = dir;
+        mCodec = codec;
+        mHighWaterMark = highWaterMark;
+        mLowWaterMark = Math.max(highWaterMark - batchSize, 0);
+        mBatchSize = batchSize;
+        mSegmentSize = segmentSize;
+        mSegments = new ArrayDeque<>();
+        mNextSeq = 1L;
+    }
+
+    @NonNull
+    public static SpillQueue create() throws IOException {
+        return create(Files.createTempDirectory("gvoid-spill").toFile());
+    }
+
+    @NonNull
+    public static SpillQueue create(@NonNull File dir) throws IOException {
+        return create(dir, new SerializableCodec(), DEFAULT_HIGH_WATER_MARK, DEFAULT_BATCH_SIZE);
+    }
+
+    @NonNull
+    public static SpillQueue create(@NonNull File dir,
+                                    @NonNull Codec codec,
+                                    int highWaterMark,
+                                    int batchSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create spill directory " + dir);
+        }
+        return new SpillQueue(dir, codec, highWaterMark, batchSize, SEGMENT_SIZE);
+    }
+
+    /* -------- Queue ------------------ */
+    public boolean append(@NonNull byte[] data) throws IOException {
+        int length = 4 + data.length;
+        if (length > mSegmentSize) return false;
+
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Spill queue is closed");
+            }
+
+            Segment segment = mSegments.peekLast();
+            if (segment == null || segment.mWritePosition + length > mSegmentSize) {
+                segment = newSegment();
+            }
+
+            ByteBuffer buffer = segment.mBuffer.duplicate();
+            int position = segment.mWritePosition;
+            buffer.position(position);
+            buffer.putInt(data.length);
+            buffer.put(data);
+            segment.mWritePosition = position + length;
+            segment.mWritten++;
+            mSize++;
+            mSpilledCount++;
+            return true;
+        }
+    }
+
+    public int poll(int max, @NonNull List<byte[]> out) {
+        synchronized (mLock) {
+            int count = 0;
+            while (count < max) {
+                Segment segment = mSegments.peekFirst();
+                if (segment == null) break;
+                if (segment.mRead >= segment.mWritten) {
+                    if (segment == mSegments.peekLast()) break;
+                    mSegments.pollFirst();
+                    segment.delete();
+                    continue;
+                }
+
+                ByteBuffer buffer = segment.mBuffer.duplicate();
+                int position = segment.mReadPosition;
+                byte[] data = new byte[buffer.getInt(position)];
+                buffer.position(position + 4);
+                buffer.get(data);
+                segment.mReadPosition = position + 4 + data.length;
+                segment.mRead++;
+                mSize--;
+                out.add(data);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    public long size() {
+        synchronized (mLock) {
+            return mSize;
+        }
+    }
+
+    public long getSpilledCount() {
+        synchronized (mLock) {
+            return mSpilledCount;
+        }
+    }
+
+    public void clear() {
+        synchronized (mLock) {
+            for (Segment segment : mSegments) {
+                segment.delete();
+            }
+            mSegments.clear();
+            mSize = 0L;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (mLock) {
+            if (mClosed) return;
+            clear();
+            mClosed = true;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDir.delete();
+    }
+
+    @GuardedBy("mLock")
+    @NonNull
+    private Segment newSegment() throws IOException {
+        String name = String.format(Locale.ROOT, "spill-%016x.seg", mNextSeq++);
+        File file = new File(mDir, name);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, mSegmentSize);
+            Segment segment = new Segment(file, raf, buffer);
+            mSegments.offerLast(segment);
+            return segment;
+        } catch (IOException e) {
+            raf.close();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw e;
+        }
+    }
+
+    private static final class Segment {
+        final File mFile;
+        final RandomAccessFile mRaf;
+        final MappedByteBuffer mBuffer;
+        int mWritePosition;
+        int mReadPosition;
+        long mWritten;
+        long mRead;
+
+        Segment(@NonNull File file, @NonNull RandomAccessFile raf, @NonNull MappedByteBuffer buffer) {
+            mFile = file;
+            mRaf = raf;
+            mBuffer = buffer;
+        }
+
+        /* The segment must not be touched afterwards, its mapping is gone */
+        void delete() {
+            unmap(mBuffer);
+            try {
+                mRaf.close();
+            } catch (IOException ignored) {
+            }
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+        }
+    }
+
+    private static void unmap(@NonNull MappedByteBuffer buffer) {
+        Method invokeCleaner = INVOKE_CLEANER;
+        if (invokeCleaner == null) return;
+        try {
+            invokeCleaner.invoke(CLEANER, buffer);
+        } catch (Throwable ignored) {
+        }
+    }
+
+    /* -------- Codec ------------------ */
+    public interface Codec {
+        @Nullable
+        byte[] encode(@NonNull Request request) throws Exception;
+
+        @NonNull
+        Request decode(@NonNull byte[] data) throws Exception;
+    }
+
+    public static class SerializableCodec implements Codec {
+        private static final byte KIND_RUNNABLE = 1;
+        private static final byte KIND_EXECUTABLE = 2;
+
+        @Nullable
+        @Override
+        public byte[] encode(@NonNull Request request) throws Exception {
+            if (request.getClass() != Request.class) return null;
+
+            Runnable runnable = request.mRunnable;
+            Executable<Request> exec = request.mExec;
+            Handleable postExec = request.mPostExec;
+            if (postExec != null && !(postExec instanceof Serializable)) return null;
+
+            byte kind;
+            Object target;
+            if (exec != null) {
+                if (!(exec instanceof Serializable)) return null;
+                kind = KIND_EXECUTABLE;
+                target = exec;
+            } else if (runnable instanceof Serializable) {
+                kind = KIND_RUNNABLE;
+                target = runnable;
+            } else return null;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeByte(kind);
+                out.writeObject(target);
+                out.writeObject(postExec);
+            }
+            return bytes.toByteArray();
+        }
+
+        @NonNull
+        @Override
+        public Request decode(@NonNull byte[] data) throws Exception {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                byte kind = in.readByte();
+                Object target = in.readObject();
+                Handleable postExec = (Handleable) in.readObject();
+
+                Request request;
+                if (kind == KIND_EXECUTABLE) {
+                    @SuppressWarnings("unchecked")
+                    Executable<Request> exec = (Executable<Request>) target;
+                    request = Request.obtain(exec, postExec);
+                } else {
+                    request = Request.obtain((Runnable) target);
+                    request.mPostExec = postExec;
+                }
+                return request;
+            }
+        }
+    }
+}
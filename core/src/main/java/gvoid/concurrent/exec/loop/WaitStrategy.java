@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.exec.loop;
+
+import annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How an idle looper waits for new requests, trading CPU for wake-up latency.
+ * Spinning strategies poll the handler without locks for their spin budget before backing off.
+ */
+@SuppressWarnings("unused")
+public final class WaitStrategy {
+    /* Monitor wait, parking only for short timed waits */
+    public static final int MODE_BLOCK = 0x0;
+    /* Spin until woken or timed out, never releases the CPU */
+    public static final int MODE_SPIN = 0x1;
+    /* Spin for the budget, then keep polling with Thread.yield() */
+    public static final int MODE_SPIN_YIELD = 0x2;
+    /* Spin for the budget, then park until unparked by a post */
+    public static final int MODE_SPIN_PARK = 0x3;
+
+    public static long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50L);
+
+    @NonNull
+    public static final WaitStrategy BLOCKING = new WaitStrategy(MODE_BLOCK, 0L);
+    @NonNull
+    public static final WaitStrategy BUSY_SPIN = new WaitStrategy(MODE_SPIN, Long.MAX_VALUE);
+
+    public final int mMode;
+    public final long mSpinNanos;
+
+    private WaitStrategy(int mode, long spinNanos) {
+        mMode = mode;
+        mSpinNanos = Math.max(spinNanos, 0L);
+    }
+
+    public boolean isSpinning() {
+        return mMode != MODE_BLOCK && mSpinNanos > 0L;
+    }
+
+    @Override
+    public String toString() {
+        switch (mMode) {
+            case MODE_SPIN:
+                return "WaitStrategy{spin}";
+            case MODE_SPIN_YIELD:
+                return "WaitStrategy{spinYield, " + mSpinNanos + "ns}";
+            case MODE_SPIN_PARK:
+                return "WaitStrategy{spinPark, " + mSpinNanos + "ns}";
+            default:
+                return "WaitStrategy{blocking}";
+        }
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static WaitStrategy blocking() {
+        return BLOCKING;
+    }
+
+    @NonNull
+    public static WaitStrategy busySpin() {
+        return BUSY_SPIN;
+    }
+
+    @NonNull
+    public static WaitStrategy spinYield() {
+        return spinYield(DEFAULT_SPIN_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    public static WaitStrategy spinYield(long spin, @NonNull TimeUnit unit) {
+        return new WaitStrategy(MODE_SPIN_YIELD, unit.toNanos(spin));
+    }
+
+    @NonNull
+    public static WaitStrategy spinPark() {
+        return spinPark(DEFAULT_SPIN_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    public static WaitStrategy spinPark(long spin, @NonNull TimeUnit unit) {
+        return new WaitStrategy(MODE_SPIN_PARK, unit.toNanos(spin));
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.flow;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Executable;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * Cold publisher that pulls items from a {@link Source} and emits them on a {@link Handler},
+ * never more than the subscriber has requested. Every subscriber gets its own source.
+ */
+@SuppressWarnings("unused")
+public class HandlerPublisher<T> implements Flow.Publisher<T> {
+    public static int DEFAULT_BATCH_SIZE = 64;
+
+    @NonNull
+    public final Handler mHandler;
+    @NonNull
+    public final Supplier<? extends Source<? extends T>> mSourceFactory;
+    public volatile int mBatchSize;
+
+    public HandlerPublisher(@NonNull Handler handler,
+                            @NonNull Supplier<? extends Source<? extends T>> sourceFactory) {
+        mHandler = handler;
+        mSourceFactory = sourceFactory;
+        mBatchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static <T> HandlerPublisher<T> from(@NonNull Handler handler,
+                                               @NonNull Iterable<? extends T> items) {
+        return new HandlerPublisher<>(handler, () -> {
+            Iterator<? extends T> iterator = items.iterator();
+            return () -> iterator.hasNext() ? iterator.next() : null;
+        });
+    }
+
+    @NonNull
+    public static <T> HandlerPublisher<T> generate(@NonNull Handler handler,
+                                                   @NonNull Supplier<? extends Source<? extends T>> sourceFactory) {
+        return new HandlerPublisher<>(handler, sourceFactory);
+    }
+
+    @Override
+    public void subscribe(@NonNull Flow.Subscriber<? super T> subscriber) {
+        //noinspection ConstantConditions
+        if (subscriber == null) throw new NullPointerException("Subscriber is null");
+
+        HandlerSubscription subscription = new HandlerSubscription(subscriber);
+        mHandler.post((Runnable) subscription::open);
+    }
+
+    private final class HandlerSubscription implements Flow.Subscription, Executable<Request> {
+        @NonNull
+        final Object mLock = new Object();
+        @NonNull
+        final Flow.Subscriber<? super T> mSubscriber;
+
+        @GuardedBy("mLock")
+        long mDemand;
+        @GuardedBy("mLock")
+        boolean mScheduled;
+        @GuardedBy("mLock")
+        boolean mDone;
+        @GuardedBy("mLock")
+        Throwable mError;
+
+        @Nullable
+        Source<? extends T> mSource;
+
+        HandlerSubscription(@NonNull Flow.Subscriber<? super T> subscriber) {
+            mSubscriber = subscriber;
+        }
+
+        void open() {
+            try {
+                mSource = mSourceFactory.get();
+            } catch (Throwable tr) {
+                synchronized (mLock) {
+                    mDone = true;
+                }
+                mSubscriber.onSubscribe(this);
+                mSubscriber.onError(tr);
+                return;
+            }
+            mSubscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (mLock) {
+                if (mDone) return;
+                if (n <= 0L) {
+                    mError = new IllegalArgumentException("Non-positive request " + n);
+                } else {
+                    long demand = mDemand + n;
+                    mDemand = demand < 0L ? Long.MAX_VALUE : demand;
+                }
+                if (mScheduled) return;
+                mScheduled = true;
+            }
+            mHandler.post(Request.obtain(this));
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (mLock) {
+                if (mDone) return;
+                mDone = true;
+                if (mScheduled) return;
+                mScheduled = true;
+            }
+            mHandler.post(Request.obtain(this));
+        }
+
+        @Override
+        public void execute(Request request) {
+            Source<? extends T> source = mSource;
+            int batchSize = Math.max(mBatchSize, 1);
+            int emitted = 0;
+            emit:
+            while (true) {
+                Throwable error;
+                synchronized (mLock) {
+                    error = mError;
+                    if (error != null) {
+                        mError = null;
+                        mDone = true;
+                    } else if (mDone) {
+                        break emit;
+                    } else if (mDemand == 0L || emitted >= batchSize) {
+                        mScheduled = false;
+                        if (mDemand == 0L) return;
+                        mScheduled = true;
+                        break emit;
+                    }
+                }
+                if (error != null) {
+                    close(source);
+                    mSubscriber.onError(error);
+                    return;
+                }
+
+                T item;
+                try {
+                    //noinspection ConstantConditions
+                    item = source.next();
+                } catch (Throwable tr) {
+                    synchronized (mLock) {
+                        mDone = true;
+                    }
+                    close(source);
+                    mSubscriber.onError(tr);
+                    return;
+                }
+                if (item == null) {
+                    synchronized (mLock) {
+                        mDone = true;
+                    }
+                    close(source);
+                    mSubscriber.onComplete();
+                    return;
+                }
+
+                synchronized (mLock) {
+                    if (mDemand != Long.MAX_VALUE) mDemand--;
+                }
+                mSubscriber.onNext(item);
+                emitted++;
+            }
+
+            boolean done;
+            synchronized (mLock) {
+                done = mDone;
+            }
+            if (done) {
+                close(source);
+                return;
+            }
+            // Yield the looper between batches, the remaining demand is served by a new request
+            mHandler.post(Request.obtain(this));
+        }
+
+        private void close(@Nullable Source<? extends T> source) {
+            mSource = null;
+            if (source == null) return;
+            try {
+                source.close();
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
+    public interface Source<T> {
+        /* Returns the next item, or null once the source is exhausted */
+        @Nullable
+        T next() throws Exception;
+
+        default void close() throws Exception {
+        }
+    }
+}
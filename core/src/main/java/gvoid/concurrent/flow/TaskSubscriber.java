@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.flow;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.task.Handleable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.task.TaskSpawner;
+import java.util.concurrent.Flow;
+
+/**
+ * Subscriber that runs every item as a task on a {@link TaskSpawner}. At most {@link #mWindow}
+ * tasks are in flight, new items are only requested as tasks complete.
+ */
+@SuppressWarnings("unused")
+public class TaskSubscriber<T> implements Flow.Subscriber<T> {
+    public static int DEFAULT_WINDOW = 16;
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final TaskSpawner mSpawner;
+    @NonNull
+    public final ItemHandler<? super T> mItemHandler;
+    public final int mWindow;
+    public final int mReplenish;
+    /* Called once with STATE_SUCCESS, STATE_FAILED or STATE_CANCELED after the last task finished */
+    @Nullable
+    public volatile Handleable mDoneHandler;
+    public volatile boolean mCancelOnFailure;
+
+    @GuardedBy("mLock")
+    private Flow.Subscription mSubscription;
+    @GuardedBy("mLock")
+    private int mInFlight;
+    @GuardedBy("mLock")
+    private long mPendingRequest;
+    @GuardedBy("mLock")
+    private long mProcessedCount;
+    @GuardedBy("mLock")
+    private long mFailedCount;
+    @GuardedBy("mLock")
+    private boolean mUpstreamDone;
+    @GuardedBy("mLock")
+    private int mDoneState;
+    @GuardedBy("mLock")
+    private Throwable mError;
+    @GuardedBy("mLock")
+    private boolean mFinished;
+
+    public TaskSubscriber(@NonNull TaskSpawner spawner,
+                          @NonNull ItemHandler<? super T> itemHandler) {
+        this(spawner, itemHandler, DEFAULT_WINDOW);
+    }
+
+    public TaskSubscriber(@NonNull TaskSpawner spawner,
+                          @NonNull ItemHandler<? super T> itemHandler,
+                          int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+
+        mLock = new Object();
+        mSpawner = spawner;
+        mItemHandler = itemHandler;
+        mWindow = window;
+        mReplenish = Math.max(window / 2, 1);
+    }
+
+    public int getInFlightCount() {
+        synchronized (mLock) {
+            return mInFlight;
+        }
+    }
+
+    public long getProcessedCount() {
+        synchronized (mLock) {
+            return mProcessedCount;
+        }
+    }
+
+    public long getFailedCount() {
+        synchronized (mLock) {
+            return mFailedCount;
+        }
+    }
+
+    public boolean isFinished() {
+        synchronized (mLock) {
+            return mFinished;
+        }
+    }
+
+    public void cancel() {
+        Flow.Subscription subscription;
+        synchronized (mLock) {
+            subscription = mSubscription;
+            if (mUpstreamDone) return;
+            mUpstreamDone = true;
+            mDoneState = Task.STATE_CANCELED;
+        }
+        if (subscription != null) subscription.cancel();
+        finishIfIdle();
+    }
+
+    /* -------- Subscriber ------------- */
+    @Override
+    public void onSubscribe(@NonNull Flow.Subscription subscription) {
+        synchronized (mLock) {
+            if (mSubscription != null || mUpstreamDone) {
+                subscription.cancel();
+                return;
+            }
+            mSubscription = subscription;
+        }
+        subscription.request(mWindow);
+    }
+
+    @Override
+    public void onNext(@NonNull T item) {
+        synchronized (mLock) {
+            if (mUpstreamDone) return;
+            mInFlight++;
+        }
+
+        try {
+            mSpawner.execute(
+                    task -> {
+                        mItemHandler.handle(item);
+                        return null;
+                    },
+                    this::onTaskDone);
+        } catch (Throwable tr) {
+            synchronized (mLock) {
+                mInFlight--;
+            }
+            fail(tr);
+        }
+    }
+
+    @Override
+    public void onError(@NonNull Throwable throwable) {
+        synchronized (mLock) {
+            if (mUpstreamDone) return;
+            mUpstreamDone = true;
+            mDoneState = Task.STATE_FAILED;
+            mError = throwable;
+        }
+        finishIfIdle();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (mLock) {
+            if (mUpstreamDone) return;
+            mUpstreamDone = true;
+            mDoneState = Task.STATE_SUCCESS;
+        }
+        finishIfIdle();
+    }
+
+    /* -------- Tasks ------------------ */
+    private void onTaskDone(int state, @Nullable Throwable throwable) {
+        boolean failed = (state & Task.STATE_FAILED & ~Task.STATE_DONE) != 0;
+
+        Flow.Subscription subscription = null;
+        long request = 0L;
+        synchronized (mLock) {
+            mInFlight--;
+            mProcessedCount++;
+            if (failed) mFailedCount++;
+
+            if (!mUpstreamDone && !(failed && mCancelOnFailure)) {
+                mPendingRequest++;
+                if (mPendingRequest >= mReplenish) {
+                    request = mPendingRequest;
+                    mPendingRequest = 0L;
+                    subscription = mSubscription;
+                }
+            }
+        }
+
+        if (failed && mCancelOnFailure) {
+            fail(throwable != null ? throwable : new IllegalStateException("Task failed"));
+            return;
+        }
+        if (subscription != null) subscription.request(request);
+        finishIfIdle();
+    }
+
+    private void fail(@NonNull Throwable throwable) {
+        Flow.Subscription subscription;
+        synchronized (mLock) {
+            if (mUpstreamDone) return;
+            mUpstreamDone = true;
+            mDoneState = Task.STATE_FAILED;
+            mError = throwable;
+            subscription = mSubscription;
+        }
+        if (subscription != null) subscription.cancel();
+        finishIfIdle();
+    }
+
+    private void finishIfIdle() {
+        int state;
+        Throwable error;
+        synchronized (mLock) {
+            if (mFinished || !mUpstreamDone || mInFlight > 0) return;
+            mFinished = true;
+            state = mDoneState;
+            error = mError;
+            mLock.notifyAll();
+        }
+
+        Handleable doneHandler = mDoneHandler;
+        if (doneHandler != null) doneHandler.handle(state, error);
+    }
+
+    public interface ItemHandler<T> {
+        void handle(@NonNull T item) throws Exception;
+    }
+}
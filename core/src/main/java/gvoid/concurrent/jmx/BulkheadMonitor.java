@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.NonNull;
+import gvoid.concurrent.task.executor.BulkheadTaskSpawner;
+
+@SuppressWarnings("unused")
+public class BulkheadMonitor implements BulkheadMXBean {
+    @NonNull
+    public final BulkheadTaskSpawner mSpawner;
+    @NonNull
+    public final String mName;
+
+    public BulkheadMonitor(@NonNull BulkheadTaskSpawner spawner,
+                           @NonNull String name) {
+        mSpawner = spawner;
+        mName = name;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mSpawner.isClosed();
+    }
+
+    @Override
+    public int getMaxConcurrent() {
+        return mSpawner.mMaxConcurrent;
+    }
+
+    @Override
+    public void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Invalid max concurrency");
+        }
+        mSpawner.mMaxConcurrent = maxConcurrent;
+    }
+
+    @Override
+    public int getMaxQueued() {
+        return mSpawner.mMaxQueued;
+    }
+
+    @Override
+    public void setMaxQueued(int maxQueued) {
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid max queue size");
+        }
+        mSpawner.mMaxQueued = maxQueued;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return mSpawner.getActiveCount();
+    }
+
+    @Override
+    public int getPeakActiveCount() {
+        return mSpawner.getPeakActiveCount();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return mSpawner.getQueuedCount();
+    }
+
+    @Override
+    public long getAdmittedCount() {
+        return mSpawner.getAdmittedCount();
+    }
+
+    @Override
+    public long getSaturatedCount() {
+        return mSpawner.getSaturatedCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return mSpawner.getRejectedCount();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return mSpawner.getCompletedCount();
+    }
+
+    @Override
+    public double getSaturation() {
+        return mSpawner.getSaturation();
+    }
+
+    @Override
+    public void resetPeak() {
+        mSpawner.resetPeak();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+@SuppressWarnings("unused")
+public class ExecutorMonitor implements ExecutorMXBean {
+    @NonNull
+    public final Object mOwner;
+    @NonNull
+    public final String mName;
+
+    public ExecutorMonitor(@NonNull ExecutorTaskSpawner spawner,
+                           @NonNull String name) {
+        this((Object) spawner, name);
+    }
+
+    ExecutorMonitor(@NonNull Object owner,
+                    @NonNull String name) {
+        mOwner = owner;
+        mName = name;
+
+        ThreadPoolExecutor executor = getPool();
+        if (executor != null) {
+            RejectionCounter.install(executor);
+        }
+    }
+
+    @Nullable
+    protected Executor getExecutor() {
+        return ((ExecutorTaskSpawner) mOwner).mExecutor;
+    }
+
+    @Nullable
+    protected final ThreadPoolExecutor getPool() {
+        Executor executor = getExecutor();
+        return executor instanceof ThreadPoolExecutor
+               ? (ThreadPoolExecutor) executor
+               : null;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return ((ExecutorTaskSpawner) mOwner).isClosed();
+    }
+
+    @Override
+    public int getActiveCount() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getActiveCount() : -1;
+    }
+
+    @Override
+    public int getQueuedCount() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getQueue().size() : -1;
+    }
+
+    @Override
+    public long getCompletedCount() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getCompletedTaskCount() : -1L;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        ThreadPoolExecutor executor = getPool();
+        if (executor == null) return -1L;
+        RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+        return handler instanceof RejectionCounter
+               ? ((RejectionCounter) handler).mCount.sum()
+               : -1L;
+    }
+
+    @Override
+    public int getPoolSize() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getPoolSize() : -1;
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getLargestPoolSize() : -1;
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getCorePoolSize() : -1;
+    }
+
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        ThreadPoolExecutor executor = getPoolOrThrow();
+        if (corePoolSize < 0 || corePoolSize > executor.getMaximumPoolSize()) {
+            throw new IllegalArgumentException("Invalid core pool size");
+        }
+        executor.setCorePoolSize(corePoolSize);
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        ThreadPoolExecutor executor = getPool();
+        return executor != null ? executor.getMaximumPoolSize() : -1;
+    }
+
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        ThreadPoolExecutor executor = getPoolOrThrow();
+        if (maximumPoolSize <= 0 || maximumPoolSize < executor.getCorePoolSize()) {
+            throw new IllegalArgumentException("Invalid maximum pool size");
+        }
+        executor.setMaximumPoolSize(maximumPoolSize);
+    }
+
+    @NonNull
+    private ThreadPoolExecutor getPoolOrThrow() {
+        ThreadPoolExecutor executor = getPool();
+        if (executor == null) {
+            throw new UnsupportedOperationException("No thread pool executor attached");
+        }
+        return executor;
+    }
+
+    static final class RejectionCounter implements RejectedExecutionHandler {
+        @NonNull
+        final RejectedExecutionHandler mHandler;
+        @NonNull
+        final LongAdder mCount;
+
+        private RejectionCounter(@NonNull RejectedExecutionHandler handler) {
+            mHandler = handler;
+            mCount = new LongAdder();
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            mCount.increment();
+            mHandler.rejectedExecution(r, executor);
+        }
+
+        static void install(@NonNull ThreadPoolExecutor executor) {
+            synchronized (executor) {
+                RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+                if (handler instanceof RejectionCounter) return;
+                executor.setRejectedExecutionHandler(new RejectionCounter(handler));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import gvoid.concurrent.exec.loop.Handler;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unused")
+public class HandlerMonitor implements HandlerMXBean {
+    @NonNull
+    public final Handler mHandler;
+    @NonNull
+    public final String mName;
+
+    @GuardedBy("this")
+    private long mLastCount;
+    @GuardedBy("this")
+    private long mLastTime;
+
+    public HandlerMonitor(@NonNull Handler handler,
+                          @NonNull String name) {
+        mHandler = handler;
+        mName = name;
+
+        synchronized (this) {
+            mLastCount = handler.getPostCount();
+            mLastTime = System.nanoTime();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mHandler.isClosed();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return mHandler.requestCount();
+    }
+
+    @Override
+    public int getTimedQueueSize() {
+        return mHandler.timedRequestCount();
+    }
+
+    @Override
+    public long getOldestPendingAge() {
+        long age = mHandler.getOldestPendingAge();
+        return age < 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(age);
+    }
+
+    @Override
+    public long getPostCount() {
+        return mHandler.getPostCount();
+    }
+
+    @Override
+    public synchronized double getPostRate() {
+        long count = mHandler.getPostCount();
+        long time = System.nanoTime();
+        long elapsed = time - mLastTime;
+        double rate = elapsed > 0L
+                      ? (count - mLastCount) * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed
+                      : 0D;
+        mLastCount = count;
+        mLastTime = time;
+        return rate;
+    }
+
+    @Override
+    public void cancelAll() {
+        mHandler.cancelAll(false);
+    }
+
+    @Override
+    public void cancelAllImmediate() {
+        mHandler.cancelAll(true);
+    }
+}
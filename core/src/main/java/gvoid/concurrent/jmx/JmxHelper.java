@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.NonNull;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.Looper;
+import gvoid.concurrent.task.executor.BulkheadTaskSpawner;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import gvoid.concurrent.task.executor.ExecutorTaskStack;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+@SuppressWarnings("unused")
+public final class JmxHelper {
+    /* -------- Defaults -------------- */
+    public static String DOMAIN = "gvoid.concurrent";
+
+    /* -------- Registration ---------- */
+    @NonNull
+    public static ObjectName register(@NonNull Handler handler,
+                                      @NonNull String name) throws JMException {
+        return register("Handler", name, new HandlerMonitor(handler, name));
+    }
+
+    @NonNull
+    public static ObjectName register(@NonNull Looper looper,
+                                      @NonNull String name) throws JMException {
+        return register("Looper", name, new LooperMonitor(looper, name));
+    }
+
+    @NonNull
+    public static ObjectName register(@NonNull ExecutorTaskSpawner spawner,
+                                      @NonNull String name) throws JMException {
+        return register("TaskSpawner", name, new ExecutorMonitor(spawner, name));
+    }
+
+    @NonNull
+    public static ObjectName register(@NonNull BulkheadTaskSpawner spawner,
+                                      @NonNull String name) throws JMException {
+        return register("Bulkhead", name, new BulkheadMonitor(spawner, name));
+    }
+
+    @NonNull
+    public static ObjectName register(@NonNull ExecutorTaskStack stack,
+                                      @NonNull String name) throws JMException {
+        return register("TaskStack", name, new TaskStackMonitor(stack, name));
+    }
+
+    public static void unregister(@NonNull ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @NonNull
+    public static ObjectName objectName(@NonNull String type,
+                                        @NonNull String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    @NonNull
+    private static ObjectName register(@NonNull String type,
+                                       @NonNull String name,
+                                       @NonNull Object monitor) throws JMException {
+        ObjectName objectName = objectName(type, name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(monitor, objectName);
+        return objectName;
+    }
+
+    private JmxHelper() {
+        throw new UnsupportedOperationException();
+    }
+}
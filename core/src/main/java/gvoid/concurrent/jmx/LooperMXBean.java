@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+@SuppressWarnings("unused")
+public interface LooperMXBean {
+    String getName();
+
+    int getState();
+
+    boolean isStarted();
+
+    boolean isReady();
+
+    long getHandledCount();
+
+    long getFailureCount();
+
+    double getBusyRatio();
+
+    void stop();
+}
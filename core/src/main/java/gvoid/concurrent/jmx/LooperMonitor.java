@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.loop.Looper;
+import gvoid.concurrent.metrics.DefaultMetrics;
+import gvoid.concurrent.metrics.Metrics;
+
+@SuppressWarnings("unused")
+public class LooperMonitor implements LooperMXBean {
+    @NonNull
+    public final Looper mLooper;
+    @NonNull
+    public final String mName;
+    @Nullable
+    private final DefaultMetrics mMetrics;
+
+    @GuardedBy("this")
+    private long mLastIdle;
+    @GuardedBy("this")
+    private long mLastBusy;
+
+    public LooperMonitor(@NonNull Looper looper,
+                         @NonNull String name) {
+        mLooper = looper;
+        mName = name;
+
+        Metrics metrics = looper.mMetrics;
+        if (metrics == null) {
+            metrics = new DefaultMetrics();
+            looper.mMetrics = metrics;
+        }
+        mMetrics = metrics instanceof DefaultMetrics
+                   ? (DefaultMetrics) metrics
+                   : null;
+
+        synchronized (this) {
+            mLastIdle = 0L;
+            mLastBusy = 0L;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public int getState() {
+        return mLooper.getState();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return mLooper.isStarted();
+    }
+
+    @Override
+    public boolean isReady() {
+        return mLooper.isReady();
+    }
+
+    @Override
+    public long getHandledCount() {
+        return mLooper.getHandledCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        DefaultMetrics metrics = mMetrics;
+        return metrics != null ? metrics.getFailureCount() : -1L;
+    }
+
+    @Override
+    public synchronized double getBusyRatio() {
+        DefaultMetrics metrics = mMetrics;
+        if (metrics == null) return -1D;
+
+        long idle = metrics.getIdleTimeHistogram().getSum();
+        long busy = metrics.getBusyTimeHistogram().getSum();
+        long idleDelta = idle - mLastIdle, busyDelta = busy - mLastBusy;
+        mLastIdle = idle;
+        mLastBusy = busy;
+
+        long total = idleDelta + busyDelta;
+        return total > 0L ? (double) busyDelta / total : 0D;
+    }
+
+    @Override
+    public void stop() {
+        mLooper.stop();
+    }
+}
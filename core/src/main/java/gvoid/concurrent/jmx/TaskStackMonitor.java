@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.jmx;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.task.executor.ExecutorTaskStack;
+import java.util.concurrent.Executor;
+
+@SuppressWarnings("unused")
+public class TaskStackMonitor extends ExecutorMonitor implements TaskStackMXBean {
+    public TaskStackMonitor(@NonNull ExecutorTaskStack stack,
+                            @NonNull String name) {
+        super(stack, name);
+    }
+
+    @NonNull
+    private ExecutorTaskStack getStack() {
+        return (ExecutorTaskStack) mOwner;
+    }
+
+    @Nullable
+    @Override
+    protected Executor getExecutor() {
+        return getStack().mExecutor;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return getStack().isClosed();
+    }
+
+    @Override
+    public int getTaskCount() {
+        ExecutorTaskStack stack = getStack();
+        synchronized (stack.mLock) {
+            return stack.isClosed() ? 0 : stack.taskCount();
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+        ExecutorTaskStack stack = getStack();
+        synchronized (stack.mLock) {
+            if (!stack.isClosed()) stack.cancelAll();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.metrics;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.util.States;
+import java.util.concurrent.atomic.LongAdder;
+
+@SuppressWarnings("unused")
+public class DefaultMetrics implements Metrics {
+    private static final int[] STATES = {
+            States.STATE_STARTED,
+            States.STATE_READY,
+            States.STATE_RUNNING,
+            States.STATE_SUCCESS,
+            States.STATE_FAILED,
+            States.STATE_CANCELED,
+            States.STATE_POST_FAILED
+    };
+
+    private final LongAdder mEnqueued;
+    private final LongAdder mDequeued;
+    private final LongAdder mExecuted;
+    private final LongAdder mPostExecuted;
+    private final LongAdder mLoops;
+    private final LongAdder mFailures;
+    private final LongAdder[] mStates;
+
+    private volatile int mDepth;
+
+    @NonNull
+    private final Histogram mQueueDepth;
+    @NonNull
+    private final Histogram mWaitTime;
+    @NonNull
+    private final Histogram mExecTime;
+    @NonNull
+    private final Histogram mPostTime;
+    @NonNull
+    private final Histogram mIdleTime;
+    @NonNull
+    private final Histogram mBusyTime;
+
+    public DefaultMetrics() {
+        mEnqueued = new LongAdder();
+        mDequeued = new LongAdder();
+        mExecuted = new LongAdder();
+        mPostExecuted = new LongAdder();
+        mLoops = new LongAdder();
+        mFailures = new LongAdder();
+        mStates = new LongAdder[STATES.length];
+        for (int i = 0; i < STATES.length; i++) {
+            mStates[i] = new LongAdder();
+        }
+
+        mDepth = 0;
+
+        mQueueDepth = new Histogram();
+        mWaitTime = new Histogram();
+        mExecTime = new Histogram();
+        mPostTime = new Histogram();
+        mIdleTime = new Histogram();
+        mBusyTime = new Histogram();
+    }
+
+    @Override
+    public void onEnqueue(int depth) {
+        mEnqueued.increment();
+        if (depth >= 0) {
+            mDepth = depth;
+            mQueueDepth.record(depth);
+        }
+    }
+
+    @Override
+    public void onDequeue(long waitTime, int depth) {
+        mDequeued.increment();
+        mWaitTime.record(waitTime);
+        if (depth >= 0) mDepth = depth;
+    }
+
+    @Override
+    public void onExecute(long execTime, int state) {
+        mExecuted.increment();
+        mExecTime.record(execTime);
+    }
+
+    @Override
+    public void onPostExecute(long postTime, int state) {
+        mPostExecuted.increment();
+        mPostTime.record(postTime);
+    }
+
+    @Override
+    public void onLoop(long idleTime, long busyTime) {
+        mLoops.increment();
+        mIdleTime.record(idleTime);
+        mBusyTime.record(busyTime);
+    }
+
+    @Override
+    public void onStateChange(int state) {
+        int index = indexOf(state);
+        if (index >= 0) mStates[index].increment();
+    }
+
+    @Override
+    public void onFailure(@Nullable Throwable throwable) {
+        mFailures.increment();
+    }
+
+    public long getEnqueuedCount() {
+        return mEnqueued.sum();
+    }
+
+    public long getDequeuedCount() {
+        return mDequeued.sum();
+    }
+
+    public long getExecutedCount() {
+        return mExecuted.sum();
+    }
+
+    public long getPostExecutedCount() {
+        return mPostExecuted.sum();
+    }
+
+    public long getLoopCount() {
+        return mLoops.sum();
+    }
+
+    public long getFailureCount() {
+        return mFailures.sum();
+    }
+
+    public long getStateCount(int state) {
+        for (int i = 0; i < STATES.length; i++) {
+            if (STATES[i] == state) return mStates[i].sum();
+        }
+        return 0L;
+    }
+
+    public int getQueueDepth() {
+        return mDepth;
+    }
+
+    @NonNull
+    public Histogram getQueueDepthHistogram() {
+        return mQueueDepth;
+    }
+
+    @NonNull
+    public Histogram getWaitTimeHistogram() {
+        return mWaitTime;
+    }
+
+    @NonNull
+    public Histogram getExecTimeHistogram() {
+        return mExecTime;
+    }
+
+    @NonNull
+    public Histogram getPostTimeHistogram() {
+        return mPostTime;
+    }
+
+    @NonNull
+    public Histogram getIdleTimeHistogram() {
+        return mIdleTime;
+    }
+
+    @NonNull
+    public Histogram getBusyTimeHistogram() {
+        return mBusyTime;
+    }
+
+    public void reset() {
+        mEnqueued.reset();
+        mDequeued.reset();
+        mExecuted.reset();
+        mPostExecuted.reset();
+        mLoops.reset();
+        mFailures.reset();
+        for (LongAdder adder : mStates) {
+            adder.reset();
+        }
+
+        mQueueDepth.reset();
+        mWaitTime.reset();
+        mExecTime.reset();
+        mPostTime.reset();
+        mIdleTime.reset();
+        mBusyTime.reset();
+    }
+
+    static int indexOf(int state) {
+        if (States.isFailedPost(state)) return 6;
+        if (States.isCanceled(state)) return 5;
+        if (States.isFailed(state)) return 4;
+        if (States.isSuccess(state)) return 3;
+        if ((state & States.STATE_RUNNING & ~States.STATE_READY) != 0) return 2;
+        if (States.isReady(state)) return 1;
+        if ((state & States.STATE_STARTED) != 0) return 0;
+        return -1;
+    }
+}
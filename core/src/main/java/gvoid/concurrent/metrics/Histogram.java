@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+@SuppressWarnings("unused")
+public final class Histogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray[] mStripes;
+    private final int mMask;
+
+    private final LongAdder mSum;
+    private final AtomicLong mMax;
+
+    public Histogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Histogram(int stripes) {
+        int count = Integer.highestOneBit(Math.max(Math.min(stripes, 16), 1));
+        mStripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            mStripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        mMask = count - 1;
+
+        mSum = new LongAdder();
+        mMax = new AtomicLong(0L);
+    }
+
+    public void record(long value) {
+        if (value < 0L) value = 0L;
+
+        int stripe = (int) Thread.currentThread().getId() & mMask;
+        mStripes[stripe].getAndIncrement(indexOf(value));
+        mSum.add(value);
+
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0L;
+        for (AtomicLongArray stripe : mStripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += stripe.get(i);
+            }
+        }
+        return count;
+    }
+
+    public long getSum() {
+        return mSum.sum();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count > 0L ? (double) getSum() / count : 0D;
+    }
+
+    public long getPercentile(double percentile) {
+        long[] counts = snapshot();
+        long total = 0L;
+        for (long count : counts) total += count;
+        if (total <= 0L) return 0L;
+
+        double p = Math.max(Math.min(percentile, 100D), 0D);
+        long rank = Math.max((long) Math.ceil(p / 100D * total), 1L);
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (AtomicLongArray stripe : mStripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                stripe.set(i, 0L);
+            }
+        }
+        mSum.reset();
+        mMax.set(0L);
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray stripe : mStripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return counts;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int exp = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        if (exp >= 63) return Long.MAX_VALUE;
+        long sub = index & (SUB_BUCKET_COUNT - 1);
+        int shift = exp - SUB_BUCKET_BITS;
+        long lowest = (SUB_BUCKET_COUNT | sub) << shift;
+        return lowest + (1L << shift) - 1L;
+    }
+}
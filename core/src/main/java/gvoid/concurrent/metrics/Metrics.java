@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.metrics;
+
+import annotation.Nullable;
+
+@SuppressWarnings("unused")
+public interface Metrics {
+    void onEnqueue(int depth);
+
+    void onDequeue(long waitTime, int depth);
+
+    void onExecute(long execTime, int state);
+
+    void onPostExecute(long postTime, int state);
+
+    void onLoop(long idleTime, long busyTime);
+
+    void onStateChange(int state);
+
+    void onFailure(@Nullable Throwable throwable);
+}
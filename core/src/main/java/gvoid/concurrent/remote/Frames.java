@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.remote;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/* Length prefixed frames, shared by the client and the bridge */
+@SuppressWarnings("unused")
+final class Frames {
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final byte TYPE_POST = 1;
+    static final byte TYPE_CANCEL = 2;
+    static final byte TYPE_ACK = 3;
+
+    private Frames() {
+        throw new UnsupportedOperationException();
+    }
+
+    /* -------- Encoding --------------- */
+    @NonNull
+    static ByteBuffer ensure(@NonNull ByteBuffer buffer, int remaining) {
+        if (buffer.remaining() >= remaining) return buffer;
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + remaining);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    @NonNull
+    static ByteBuffer putPost(@NonNull ByteBuffer buffer, long id, @NonNull byte[] name, @NonNull byte[] payload) {
+        int length = 1 + 8 + 2 + name.length + 4 + payload.length;
+        buffer = ensure(buffer, 4 + length);
+        buffer.putInt(length);
+        buffer.put(TYPE_POST);
+        buffer.putLong(id);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        return buffer;
+    }
+
+    @NonNull
+    static ByteBuffer putCancel(@NonNull ByteBuffer buffer, long id) {
+        buffer = ensure(buffer, 4 + 1 + 8);
+        buffer.putInt(1 + 8);
+        buffer.put(TYPE_CANCEL);
+        buffer.putLong(id);
+        return buffer;
+    }
+
+    @NonNull
+    static ByteBuffer putAck(@NonNull ByteBuffer buffer, long id, int state, @Nullable String message) {
+        byte[] bytes = message != null ? message.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (bytes.length > Short.MAX_VALUE) bytes = java.util.Arrays.copyOf(bytes, Short.MAX_VALUE);
+        int length = 1 + 8 + 4 + 2 + bytes.length;
+        buffer = ensure(buffer, 4 + length);
+        buffer.putInt(length);
+        buffer.put(TYPE_ACK);
+        buffer.putLong(id);
+        buffer.putInt(state);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+        return buffer;
+    }
+
+    @NonNull
+    static String getString(@NonNull ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* -------- Reading ---------------- */
+    static void readLoop(@NonNull ByteChannel channel, @NonNull FrameHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (true) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Channel closed");
+            }
+            buffer.flip();
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (buffer.remaining() < 4 + length) break;
+
+                int end = buffer.position() + 4 + length;
+                int limit = buffer.limit();
+                buffer.position(buffer.position() + 4);
+                buffer.limit(end);
+                handler.handle(buffer.get(), buffer);
+                buffer.limit(limit);
+                buffer.position(end);
+            }
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+
+    interface FrameHandler {
+        void handle(byte type, @NonNull ByteBuffer body) throws IOException;
+    }
+
+    /* Collects frames from many threads and writes them in batches */
+    static final class BatchWriter implements Runnable, Closeable {
+        final Object mLock = new Object();
+        @NonNull
+        final ByteChannel mChannel;
+
+        @GuardedBy("mLock")
+        private ByteBuffer mPending = ByteBuffer.allocate(BUFFER_SIZE);
+        @GuardedBy("mLock")
+        private ByteBuffer mSpare = ByteBuffer.allocate(BUFFER_SIZE);
+        @GuardedBy("mLock")
+        private boolean mClosed;
+        private volatile long mBatches;
+
+        BatchWriter(@NonNull ByteChannel channel) {
+            mChannel = channel;
+        }
+
+        @GuardedBy("mLock")
+        @NonNull
+        ByteBuffer buffer() {
+            if (mClosed) throw new IllegalStateException("Connection is closed");
+            return mPending;
+        }
+
+        @GuardedBy("mLock")
+        void commit(@NonNull ByteBuffer buffer) {
+            mPending = buffer;
+            mLock.notifyAll();
+        }
+
+        long getBatchCount() {
+            return mBatches;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ByteBuffer batch;
+                    synchronized (mLock) {
+                        while (mPending.position() == 0 && !mClosed) {
+                            mLock.wait();
+                        }
+                        if (mPending.position() == 0) return;
+                        batch = mPending;
+                        mPending = mSpare;
+                        mSpare = null;
+                    }
+
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        mChannel.write(batch);
+                    }
+                    batch.clear();
+                    if (batch.capacity() > MAX_FRAME_SIZE) batch = ByteBuffer.allocate(BUFFER_SIZE);
+                    mBatches++;
+
+                    synchronized (mLock) {
+                        mSpare = batch;
+                    }
+                }
+            } catch (InterruptedException | IOException ignored) {
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (mLock) {
+                mClosed = true;
+                mLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.remote;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SuppressWarnings("unused")
+public class RemoteBridge implements Runnable, Closeable {
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final Handler mHandler;
+
+    @NonNull
+    private final ServerSocketChannel mServer;
+    @Nullable
+    private final Path mSocketPath;
+
+    @GuardedBy("mLock")
+    private final Map<String, Action> mActions;
+    @GuardedBy("mLock")
+    private final Set<Connection> mConnections;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    protected RemoteBridge(@NonNull Handler handler,
+                           @NonNull ServerSocketChannel server,
+                           @Nullable Path socketPath) {
+        mLock = new Object();
+        mHandler = handler;
+        mServer = server;
+        mSocketPath = socketPath;
+        mActions = new HashMap<>();
+        mConnections = new HashSet<>();
+    }
+
+    @NonNull
+    public static RemoteBridge bind(@NonNull Handler handler, @NonNull Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        RemoteBridge bridge = new RemoteBridge(handler,
+                UnixSockets.bind(UnixSockets.address(socketPath)), socketPath);
+        bridge.start();
+        return bridge;
+    }
+
+    @NonNull
+    public static RemoteBridge bind(@NonNull Handler handler, @NonNull SocketAddress address) throws IOException {
+        RemoteBridge bridge = new RemoteBridge(handler, UnixSockets.bind(address), null);
+        bridge.start();
+        return bridge;
+    }
+
+    private void start() {
+        Thread thread = new Thread(this, "RemoteBridge-accept");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @NonNull
+    public SocketAddress getLocalAddress() throws IOException {
+        return mServer.getLocalAddress();
+    }
+
+    /* -------- Actions ---------------- */
+    @NonNull
+    public RemoteBridge register(@NonNull String name, @NonNull Action action) {
+        synchronized (mLock) {
+            mActions.put(name, action);
+            return this;
+        }
+    }
+
+    @NonNull
+    public RemoteBridge unregister(@NonNull String name) {
+        synchronized (mLock) {
+            mActions.remove(name);
+            return this;
+        }
+    }
+
+    public int connectionCount() {
+        synchronized (mLock) {
+            return mConnections.size();
+        }
+    }
+
+    /* -------- Serving ---------------- */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                SocketChannel channel = mServer.accept();
+                Connection connection = new Connection(channel);
+                synchronized (mLock) {
+                    if (mClosed) {
+                        connection.close();
+                        return;
+                    }
+                    mConnections.add(connection);
+                }
+                connection.start();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Connection> connections;
+        synchronized (mLock) {
+            if (mClosed) return;
+            mClosed = true;
+            connections = new ArrayList<>(mConnections);
+            mConnections.clear();
+        }
+
+        try {
+            mServer.close();
+        } catch (IOException ignored) {
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        if (mSocketPath != null) {
+            try {
+                Files.deleteIfExists(mSocketPath);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private final class Connection implements Closeable {
+        final Object mLock = new Object();
+        @NonNull
+        final SocketChannel mChannel;
+        @NonNull
+        final Frames.BatchWriter mWriter;
+
+        @GuardedBy("mLock")
+        final Map<Long, Request> mRequests = new HashMap<>();
+
+        Connection(@NonNull SocketChannel channel) {
+            mChannel = channel;
+            mWriter = new Frames.BatchWriter(channel);
+        }
+
+        void start() {
+            Thread writer = new Thread(mWriter, "RemoteBridge-writer");
+            writer.setDaemon(true);
+            writer.start();
+
+            Thread reader = new Thread(this::readLoop, "RemoteBridge-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try {
+                Frames.readLoop(mChannel, this::onFrame);
+            } catch (Throwable ignored) {
+            } finally {
+                close();
+            }
+        }
+
+        private void onFrame(byte type, @NonNull ByteBuffer body) {
+            long id = body.getLong();
+            if (type == Frames.TYPE_CANCEL) {
+                Request request;
+                synchronized (mLock) {
+                    request = mRequests.remove(id);
+                }
+                if (request != null && request.cancel()) {
+                    ack(id, Request.STATE_CANCELED, null);
+                }
+                return;
+            }
+            if (type != Frames.TYPE_POST) return;
+
+            String name = Frames.getString(body, body.getShort() & 0xffff);
+            byte[] payload = new byte[body.getInt()];
+            body.get(payload);
+
+            Action action;
+            synchronized (RemoteBridge.this.mLock) {
+                action = mActions.get(name);
+            }
+            if (action == null) {
+                ack(id, Request.STATE_FAILED, "Unknown action " + name);
+                return;
+            }
+
+            // Not pooled, the bridge keeps this handle for cancel frames after the handler is done with it
+            Request request = new Request(
+                    r -> action.execute(payload),
+                    (state, throwable) -> {
+                        synchronized (mLock) {
+                            mRequests.remove(id);
+                        }
+                        ack(id, state, throwable != null ? throwable.toString() : null);
+                    });
+            synchronized (mLock) {
+                mRequests.put(id, request);
+            }
+            try {
+                mHandler.post(request);
+            } catch (Throwable tr) {
+                synchronized (mLock) {
+                    mRequests.remove(id);
+                }
+                ack(id, Request.STATE_FAILED, tr.toString());
+            }
+        }
+
+        private void ack(long id, int state, @Nullable String message) {
+            try {
+                synchronized (mWriter.mLock) {
+                    mWriter.commit(Frames.putAck(mWriter.buffer(), id, state, message));
+                }
+            } catch (RuntimeException ignored) {
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (RemoteBridge.this.mLock) {
+                mConnections.remove(this);
+            }
+
+            List<Request> requests;
+            synchronized (mLock) {
+                requests = new ArrayList<>(mRequests.values());
+                mRequests.clear();
+            }
+            for (Request request : requests) {
+                request.cancel();
+            }
+
+            mWriter.close();
+            try {
+                mChannel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public interface Action {
+        void execute(@NonNull byte[] payload) throws Exception;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.remote;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Handleable;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.exec.loop.Handler;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@SuppressWarnings("unused")
+public class RemoteHandler implements Closeable {
+    @NonNull
+    public final Object mLock;
+    /* Completed requests are executed on this handler, or inline on the reader thread if null */
+    @Nullable
+    public volatile Handler mCallbackHandler;
+
+    @NonNull
+    private final ByteChannel mChannel;
+    @NonNull
+    private final Frames.BatchWriter mWriter;
+
+    @GuardedBy("mLock")
+    private final Map<Long, RemoteRequest> mPending;
+    @GuardedBy("mLock")
+    private long mNextId;
+    @GuardedBy("mLock")
+    private boolean mClosed;
+
+    protected RemoteHandler(@NonNull ByteChannel channel, @Nullable Handler callbackHandler) {
+        mLock = new Object();
+        mChannel = channel;
+        mCallbackHandler = callbackHandler;
+        mWriter = new Frames.BatchWriter(channel);
+        mPending = new HashMap<>();
+        mNextId = 1L;
+    }
+
+    @NonNull
+    public static RemoteHandler connect(@NonNull Path socketPath) throws IOException {
+        return connect(UnixSockets.address(socketPath), null);
+    }
+
+    @NonNull
+    public static RemoteHandler connect(@NonNull Path socketPath,
+                                        @Nullable Handler callbackHandler) throws IOException {
+        return connect(UnixSockets.address(socketPath), callbackHandler);
+    }
+
+    @NonNull
+    public static RemoteHandler connect(@NonNull SocketAddress address,
+                                        @Nullable Handler callbackHandler) throws IOException {
+        RemoteHandler remote = new RemoteHandler(UnixSockets.open(address), callbackHandler);
+        remote.start();
+        return remote;
+    }
+
+    private void start() {
+        Thread writer = new Thread(mWriter, "RemoteHandler-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Thread reader = new Thread(this::readLoop, "RemoteHandler-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public boolean isClosed() {
+        synchronized (mLock) {
+            return mClosed;
+        }
+    }
+
+    /* -------- Posting ---------------- */
+    @NonNull
+    public final RemoteRequest post(@NonNull String name, @Nullable byte[] payload) {
+        return post(name, payload, null);
+    }
+
+    @NonNull
+    public RemoteRequest post(@NonNull String name, @Nullable byte[] payload, @Nullable Handleable postExec) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Name too long");
+        }
+        if (payload == null) payload = new byte[0];
+
+        RemoteRequest request;
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Remote handler is closed");
+            }
+            request = new RemoteRequest(this, mNextId++, name);
+            request.mPostExec = postExec;
+            request.start();
+            mPending.put(request.mId, request);
+        }
+
+        try {
+            synchronized (mWriter.mLock) {
+                ByteBuffer buffer = Frames.putPost(mWriter.buffer(), request.mId, nameBytes, payload);
+                mWriter.commit(buffer);
+            }
+        } catch (RuntimeException e) {
+            synchronized (mLock) {
+                mPending.remove(request.mId);
+            }
+            throw e;
+        }
+        return request;
+    }
+
+    void sendCancel(@NonNull RemoteRequest request) {
+        synchronized (mLock) {
+            if (!mPending.containsKey(request.mId)) return;
+        }
+        try {
+            synchronized (mWriter.mLock) {
+                mWriter.commit(Frames.putCancel(mWriter.buffer(), request.mId));
+            }
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (mLock) {
+            return mPending.size();
+        }
+    }
+
+    public long getBatchCount() {
+        return mWriter.getBatchCount();
+    }
+
+    /* -------- Completion ------------- */
+    private void readLoop() {
+        try {
+            Frames.readLoop(mChannel, (type, body) -> {
+                if (type != Frames.TYPE_ACK) return;
+                long id = body.getLong();
+                int state = body.getInt();
+                int length = body.getShort() & 0xffff;
+                String message = length > 0 ? Frames.getString(body, length) : null;
+
+                RemoteRequest request;
+                synchronized (mLock) {
+                    request = mPending.remove(id);
+                }
+                if (request != null) complete(request, state, message);
+            });
+        } catch (Throwable ignored) {
+        } finally {
+            close();
+        }
+    }
+
+    private void complete(@NonNull RemoteRequest request, int state, @Nullable String message) {
+        request.complete(state, message);
+        if ((state & Request.STATE_CANCELED) == Request.STATE_CANCELED) return;
+
+        Handler handler = mCallbackHandler;
+        if (handler != null && !handler.isClosed()) {
+            try {
+                handler.post((Request) request);
+                return;
+            } catch (Throwable ignored) {
+            }
+        }
+        if (request.ready()) request.execute();
+    }
+
+    @Override
+    public void close() {
+        List<RemoteRequest> pending;
+        synchronized (mLock) {
+            if (mClosed) return;
+            mClosed = true;
+            pending = new ArrayList<>(mPending.values());
+            mPending.clear();
+        }
+
+        mWriter.close();
+        try {
+            mChannel.close();
+        } catch (IOException ignored) {
+        }
+        for (RemoteRequest request : pending) {
+            try {
+                complete(request, Request.STATE_FAILED, "Connection closed");
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.remote;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
+
+@SuppressWarnings("unused")
+public class RemoteRequest extends Request {
+    @NonNull
+    public final RemoteHandler mRemote;
+    public final long mId;
+    @NonNull
+    public final String mName;
+
+    private volatile int mRemoteState;
+    @Nullable
+    private volatile String mRemoteMessage;
+
+    RemoteRequest(@NonNull RemoteHandler remote, long id, @NonNull String name) {
+        super();
+        mRemote = remote;
+        mId = id;
+        mName = name;
+        mExec = request -> {
+            if ((mRemoteState & STATE_SUCCESS) != STATE_SUCCESS) {
+                throw new RemoteException(mRemoteMessage);
+            }
+        };
+    }
+
+    public int getRemoteState() {
+        return mRemoteState;
+    }
+
+    @Nullable
+    public String getRemoteMessage() {
+        return mRemoteMessage;
+    }
+
+    @Override
+    public boolean cancel() {
+        boolean canceled = super.cancel();
+        if (canceled && mRemoteState == STATE_NONE) {
+            mRemote.sendCancel(this);
+        }
+        return canceled;
+    }
+
+    void complete(int state, @Nullable String message) {
+        mRemoteMessage = message;
+        mRemoteState = state;
+        if ((state & STATE_CANCELED) == STATE_CANCELED) {
+            super.cancel();
+        }
+    }
+
+    public static class RemoteException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public RemoteException(@Nullable String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.remote;
+
+import annotation.NonNull;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * UNIX domain socket channels are only available on Java 16 and newer,
+ * they are resolved reflectively so the library still runs on older runtimes.
+ */
+@SuppressWarnings("unused")
+public final class UnixSockets {
+    private static final String ADDRESS_CLASS = "java.net.UnixDomainSocketAddress";
+
+    private UnixSockets() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static boolean isSupported() {
+        try {
+            Class.forName(ADDRESS_CLASS);
+            return true;
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    public static boolean isUnixAddress(@NonNull SocketAddress address) {
+        return ADDRESS_CLASS.equals(address.getClass().getName());
+    }
+
+    @NonNull
+    public static SocketAddress address(@NonNull Path path) {
+        try {
+            Method of = Class.forName(ADDRESS_CLASS).getMethod("of", Path.class);
+            return (SocketAddress) of.invoke(null, path);
+        } catch (Throwable tr) {
+            throw new UnsupportedOperationException("UNIX domain sockets are not supported", tr);
+        }
+    }
+
+    @NonNull
+    public static SocketChannel open(@NonNull SocketAddress address) throws IOException {
+        if (!isUnixAddress(address)) return SocketChannel.open(address);
+
+        SocketChannel channel = (SocketChannel) invokeOpen(SocketChannel.class);
+        try {
+            channel.connect(address);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @NonNull
+    public static ServerSocketChannel bind(@NonNull SocketAddress address) throws IOException {
+        ServerSocketChannel channel = isUnixAddress(address)
+                ? (ServerSocketChannel) invokeOpen(ServerSocketChannel.class)
+                : ServerSocketChannel.open();
+        try {
+            channel.bind(address);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @NonNull
+    private static Object invokeOpen(@NonNull Class<?> type) throws IOException {
+        try {
+            ProtocolFamily family = StandardProtocolFamily.valueOf("UNIX");
+            return type.getMethod("open", ProtocolFamily.class).invoke(null, family);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new UnsupportedOperationException("UNIX domain sockets are not supported", e.getCause());
+        } catch (Throwable tr) {
+            throw new UnsupportedOperationException("UNIX domain sockets are not supported", tr);
+        }
+    }
+}
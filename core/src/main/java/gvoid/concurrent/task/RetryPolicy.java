@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.loop.Handler;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Retry policy for failed tasks. Waits between attempts are posted as timed requests
+ * on {@link #mHandler}, so no thread is held while a task is backing off.
+ */
+@SuppressWarnings("unused")
+public class RetryPolicy {
+    public static int DEFAULT_MAX_ATTEMPTS = 3;
+    public static long DEFAULT_INITIAL_DELAY = 100L;
+    public static long DEFAULT_MAX_DELAY = 30000L;
+    public static double DEFAULT_MULTIPLIER = 2.0;
+    public static double DEFAULT_JITTER = 0.5;
+
+    @NonNull
+    public final Handler mHandler;
+    /* Total number of attempts including the first one */
+    public volatile int mMaxAttempts;
+    /* Backoff delays in milliseconds */
+    public volatile long mInitialDelay;
+    public volatile long mMaxDelay;
+    public volatile double mMultiplier;
+    /* Fraction of each delay that is randomized, 0 for none, 1 for full jitter */
+    public volatile double mJitter;
+    @Nullable
+    public volatile Predicate<Throwable> mRetryOn;
+
+    public RetryPolicy(@NonNull Handler handler) {
+        if (handler == null)
+            throw new NullPointerException("No handler attached");
+
+        mHandler = handler;
+        mMaxAttempts = DEFAULT_MAX_ATTEMPTS;
+        mInitialDelay = DEFAULT_INITIAL_DELAY;
+        mMaxDelay = DEFAULT_MAX_DELAY;
+        mMultiplier = DEFAULT_MULTIPLIER;
+        mJitter = DEFAULT_JITTER;
+        mRetryOn = null;
+    }
+
+    @NonNull
+    public static RetryPolicy with(@NonNull Handler handler) {
+        return new RetryPolicy(handler);
+    }
+
+    @NonNull
+    public static RetryPolicy with(@NonNull Handler handler, int maxAttempts) {
+        RetryPolicy policy = new RetryPolicy(handler);
+        policy.mMaxAttempts = maxAttempts;
+        return policy;
+    }
+
+    public boolean shouldRetry(int attempt, @Nullable Throwable throwable) {
+        if (attempt >= mMaxAttempts) return false;
+        if (throwable == null || throwable instanceof InterruptedException) return false;
+        Predicate<Throwable> retryOn = mRetryOn;
+        return retryOn == null || retryOn.test(throwable);
+    }
+
+    /* Delay in nanoseconds before the attempt following {@code attempt} */
+    public long getDelay(int attempt) {
+        double delay = Math.max(mInitialDelay, 0L);
+        double multiplier = mMultiplier;
+        long maxDelay = mMaxDelay;
+        for (int i = 1; i < attempt && delay < maxDelay; i++) {
+            delay *= multiplier;
+        }
+        delay = Math.min(delay, maxDelay);
+
+        double jitter = Math.min(Math.max(mJitter, 0.0), 1.0);
+        if (jitter > 0.0) {
+            delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return TimeUnit.MICROSECONDS.toNanos((long) (delay * 1000.0));
+    }
+}
@@ -19,7 +19,14 @@ package gvoid.concurrent.task;
 import annotation.GuardedBy;
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
+import gvoid.concurrent.metrics.Metrics;
+import gvoid.concurrent.trace.FlightRecorder;
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @SuppressWarnings("unused")
 public class Task implements Runnable, Closeable {
@@ -31,6 +38,7 @@ public class Task implements Runnable, Closeable {
     public static final int STATE_SUCCESS = STATE_DONE | 0x1 << 28;
     public static final int STATE_FAILED = STATE_DONE | 0x1 << 29;
     public static final int STATE_POST_FAILED = STATE_DONE | 0x1 << 30;
+    public static final int STATE_TIMED_OUT = STATE_FAILED | 0x1 << 23;
 
     @NonNull
     public final Object mLock;
@@ -38,12 +46,47 @@ public class Task implements Runnable, Closeable {
     public volatile Executable<Task> mExec;
     @Nullable
     public volatile Handleable mPostExec;
+    @Nullable
+    public volatile Metrics mMetrics;
+    public volatile long mTraceId;
+    /* Execution timeout in milliseconds, 0 for none */
+    public volatile long mTimeout;
+    public volatile boolean mInterruptOnTimeout;
+    @Nullable
+    public volatile RetryPolicy mRetryPolicy;
 
     @GuardedBy("mLock")
     private volatile int mState;
     @GuardedBy("mLock")
     private volatile Throwable mThrow;
 
+    @NonNull
+    private final Runnable mBodyRunnable;
+    @NonNull
+    private final Runnable mPostRunnable;
+    @NonNull
+    private final Runnable mRetryRunnable;
+    @GuardedBy("mLock")
+    private Runnable mPostRun;
+    @GuardedBy("mLock")
+    private Handleable mPostHandle;
+    @GuardedBy("mLock")
+    private volatile boolean mPostPending;
+    @GuardedBy("mLock")
+    private Thread mRunner;
+    @GuardedBy("mLock")
+    private TaskTimer.Timeout mTimeoutEntry;
+    @GuardedBy("mLock")
+    private boolean mTimeoutInterrupt;
+    @GuardedBy("mLock")
+    private volatile int mAttempts;
+    @GuardedBy("mLock")
+    private List<Throwable> mAttemptCauses;
+    @GuardedBy("mLock")
+    private Request mRetryRequest;
+
+    private volatile long mSubmitTime;
+
     public Task() {
         this(null, null, null);
     }
@@ -68,9 +111,16 @@ public class Task implements Runnable, Closeable {
         mExec = exec;
         mPostExec = postExec;
 
+        mBodyRunnable = this::runBody;
+        mPostRunnable = this::runPost;
+        mRetryRunnable = this::runRetry;
+
         synchronized (mLock) {
             mState = STATE_NONE;
             mThrow = null;
+            mPostRun = null;
+            mPostHandle = null;
+            mPostPending = false;
         }
     }
 
@@ -106,134 +156,47 @@ public class Task implements Runnable, Closeable {
         return (getState() & STATE_POST_FAILED & ~STATE_DONE) != 0;
     }
 
+    public final boolean isTimedOut() {
+        return (getState() & STATE_TIMED_OUT & ~STATE_FAILED) != 0;
+    }
+
     @Nullable
     public Throwable getCause() {
         return mThrow;
     }
 
-    @SuppressWarnings("UnusedReturnValue")
-    public boolean execute() {
-        Runnable runnable = () -> {
-            boolean skip;
-            synchronized (mLock) {
-                int state = mState;
-                if ((state & STATE_STARTED) != STATE_STARTED) return;
-                if ((state & STATE_DONE) == STATE_DONE) return;
-                if ((state & STATE_RUNNING) == STATE_RUNNING) return;
-                state |= STATE_RUNNING;
-                mState = state;
-                mLock.notifyAll();
-
-                skip = (state
-                        & (STATE_FAILED | STATE_SUCCESS)
-                        & ~STATE_DONE
-                ) != 0;
-            }
-
-            Runnable postRun = null;
-            Handleable postHandle = null;
-            Throwable throwable = null;
-            boolean success = false, end = false;
-            try {
-                Executable<Task> exec = mExec;
-                if (exec == null && !skip) {
-                    synchronized (mLock) {
-                        mLock.wait(20L);
-                        if ((mState & STATE_DONE) == STATE_DONE) return;
-                        exec = mExec;
-                        postHandle = mPostExec;
-                    }
-                } else {
-                    postHandle = mPostExec;
-                }
-
-                if (!skip) {
-                    if (exec == null) {
-                        throw new NullPointerException("No executable attached");
-                    }
-
-                    postRun = exec.execute(this);
-                    success = true;
-                }
-            } catch (Throwable tr) {
-                throwable = tr;
-            } finally {
-                synchronized (mLock) {
-                    int state = mState;
-                    if (throwable instanceof InterruptedException) {
-                        state |= STATE_CANCELED;
-                    }
-
-                    if ((state & STATE_DONE) == STATE_DONE) {
-                        success = false;
-                        end = true;
-                    } else if (!skip) {
-                        state |= success ? STATE_SUCCESS : STATE_FAILED;
-                        mThrow = throwable;
-                    }
+    public int getAttemptCount() {
+        return mAttempts;
+    }
 
-                    state &= ~STATE_RUNNING;
-                    state |= STATE_DONE;
-                    mState = state;
-                    mLock.notifyAll();
-                }
+    public final boolean isRetryPending() {
+        synchronized (mLock) {
+            return mRetryRequest != null;
+        }
+    }
 
-                if (postHandle == null) {
-                    postHandle = mPostExec;
-                }
-            }
-            if (end) return;
-
-            Runnable postR = success ? postRun : null;
-            Handleable postH = postHandle;
-            if ((!success || postR == null)
-                    && postH == null) return;
-
-            Runnable postExec = () -> {
-                if (postR != null) {
-                    try {
-                        postR.run();
-                    } catch (Throwable tr) {
-                        synchronized (mLock) {
-                            mState |= STATE_POST_FAILED;
-                            if (mThrow != null) mThrow.addSuppressed(tr);
-                            else mThrow = tr;
-                            mLock.notifyAll();
-                        }
-                    }
-                }
-                if (postH != null) {
-                    try {
-                        int st;
-                        Throwable tr;
-                        synchronized (mLock) {
-                            st = mState;
-                            tr = mThrow;
-                        }
-                        postH.handle(st, tr);
-                    } catch (Throwable tr) {
-                        synchronized (mLock) {
-                            mState |= STATE_POST_FAILED;
-                            if (mThrow != null) mThrow.addSuppressed(tr);
-                            else mThrow = tr;
-                            mLock.notifyAll();
-                        }
-                    }
-                }
-            };
+    public boolean reset() {
+        synchronized (mLock) {
+            int state = mState;
+            if (state == STATE_NONE) return true;
+            if ((state & STATE_DONE) != STATE_DONE) return false;
+            if ((state & STATE_RUNNING & ~STATE_STARTED) != 0) return false;
+            if (mPostPending || mRunner != null) return false;
+            mState = STATE_NONE;
+            mThrow = null;
+            mPostRun = null;
+            mPostHandle = null;
+            mAttempts = 0;
+            mAttemptCauses = null;
+            mTraceId = 0L;
+            mLock.notifyAll();
+            return true;
+        }
+    }
 
-            try {
-                if (skip) postExec.run();
-                else onPostExecute(postExec);
-            } catch (Throwable tr) {
-                synchronized (mLock) {
-                    mState |= STATE_POST_FAILED;
-                    if (mThrow != null) mThrow.addSuppressed(tr);
-                    else mThrow = tr;
-                    mLock.notifyAll();
-                }
-            }
-        };
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean execute() {
+        Runnable runnable = mBodyRunnable;
 
         exec: {
             synchronized (mLock) {
@@ -245,6 +208,16 @@ public class Task implements Runnable, Closeable {
                 mLock.notifyAll();
             }
 
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                mSubmitTime = System.nanoTime();
+                metrics.onStateChange(STATE_STARTED);
+            }
+            if (FlightRecorder.ENABLED) {
+                if (mTraceId == 0L) mTraceId = FlightRecorder.nextId();
+                FlightRecorder.record(FlightRecorder.EVENT_POST, FlightRecorder.SOURCE_TASK, mTraceId, 0);
+            }
+
             try {
                 onExecute(runnable);
                 break exec;
@@ -279,17 +252,383 @@ public class Task implements Runnable, Closeable {
         }
     }
 
+    private void runBody() {
+        boolean skip;
+        synchronized (mLock) {
+            int state = mState;
+            if ((state & STATE_STARTED) != STATE_STARTED) return;
+            if ((state & STATE_DONE) == STATE_DONE) return;
+            if ((state & STATE_RUNNING) == STATE_RUNNING) return;
+            state |= STATE_RUNNING;
+            mState = state;
+            mRunner = Thread.currentThread();
+            mAttempts++;
+            long timeout = mTimeout;
+            if (timeout > 0L) {
+                mTimeoutEntry = TaskTimer.get().schedule(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+            }
+            mLock.notifyAll();
+
+            skip = (state
+                    & (STATE_FAILED | STATE_SUCCESS)
+                    & ~STATE_DONE
+            ) != 0;
+        }
+
+        Metrics metrics = mMetrics;
+        long startTime = 0L;
+        if (metrics != null) {
+            startTime = System.nanoTime();
+            metrics.onDequeue(startTime - mSubmitTime, -1);
+            metrics.onStateChange(STATE_RUNNING);
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_RUN_START, FlightRecorder.SOURCE_TASK, mTraceId, 0);
+
+        Runnable postRun = null;
+        Handleable postHandle = null;
+        Throwable throwable = null;
+        RetryPolicy retry = null;
+        int attempt = 0;
+        boolean success = false, end = false;
+        try {
+            Executable<Task> exec = mExec;
+            if (exec == null && !skip) {
+                synchronized (mLock) {
+                    mLock.wait(20L);
+                    if ((mState & STATE_DONE) == STATE_DONE) return;
+                    exec = mExec;
+                    postHandle = mPostExec;
+                }
+            } else {
+                postHandle = mPostExec;
+            }
+
+            if (!skip) {
+                if (exec == null) {
+                    throw new NullPointerException("No executable attached");
+                }
+
+                postRun = exec.execute(this);
+                success = true;
+            }
+        } catch (Throwable tr) {
+            throwable = tr;
+        } finally {
+            synchronized (mLock) {
+                int state = mState;
+                if (throwable instanceof InterruptedException
+                        && (state & STATE_DONE) != STATE_DONE) {
+                    state |= STATE_CANCELED;
+                }
+
+                if ((state & STATE_DONE) == STATE_DONE) {
+                    success = false;
+                    end = true;
+                } else if (!skip) {
+                    attempt = mAttempts;
+                    if (!success
+                            && (retry = mRetryPolicy) != null
+                            && retry.shouldRetry(attempt, throwable)) {
+                        if (mAttemptCauses == null) mAttemptCauses = new ArrayList<>(4);
+                        mAttemptCauses.add(throwable);
+                    } else {
+                        retry = null;
+                        state |= success ? STATE_SUCCESS : STATE_FAILED;
+                        mThrow = success ? null : chainAttemptCauses(throwable);
+                        mAttemptCauses = null;
+                    }
+                }
+
+                if (!end && retry == null) {
+                    Runnable postR = success ? postRun : null;
+                    if (postR != null || postHandle != null || mPostExec != null) {
+                        mPostRun = postR;
+                        mPostHandle = postHandle != null ? postHandle : mPostExec;
+                        mPostPending = true;
+                    }
+                }
+
+                state &= ~STATE_RUNNING;
+                state |= retry == null ? STATE_DONE : STATE_STARTED;
+                mState = state;
+
+                mRunner = null;
+                TaskTimer.Timeout timeout = mTimeoutEntry;
+                mTimeoutEntry = null;
+                if (timeout != null) timeout.cancel();
+                if (mTimeoutInterrupt) {
+                    // Do not leak the timeout interrupt into whatever the thread runs next
+                    mTimeoutInterrupt = false;
+                    //noinspection ResultOfMethodCallIgnored
+                    Thread.interrupted();
+                }
+                mLock.notifyAll();
+            }
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_RUN_END, FlightRecorder.SOURCE_TASK, mTraceId, mState);
+        if (metrics != null) {
+            int state = mState;
+            metrics.onExecute(System.nanoTime() - startTime, state);
+            metrics.onStateChange(state);
+            if (throwable != null) metrics.onFailure(throwable);
+        }
+        if (retry != null) {
+            scheduleRetry(retry, attempt);
+            return;
+        }
+        if (end || !mPostPending) return;
+
+        try {
+            if (skip) mPostRunnable.run();
+            else onPostExecute(mPostRunnable);
+        } catch (Throwable tr) {
+            synchronized (mLock) {
+                mState |= STATE_POST_FAILED;
+                if (mThrow != null) mThrow.addSuppressed(tr);
+                else mThrow = tr;
+                mPostPending = false;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    @Nullable
+    @GuardedBy("mLock")
+    private Throwable chainAttemptCauses(@Nullable Throwable throwable) {
+        List<Throwable> causes = mAttemptCauses;
+        if (throwable == null || causes == null) return throwable;
+        for (Throwable cause : causes) {
+            if (cause != throwable) throwable.addSuppressed(cause);
+        }
+        return throwable;
+    }
+
+    private void scheduleRetry(@NonNull RetryPolicy retry, int attempt) {
+        Request request;
+        try {
+            request = retry.mHandler.postDelayed(mRetryRunnable, retry.getDelay(attempt), TimeUnit.NANOSECONDS);
+        } catch (Throwable tr) {
+            failRetry(tr);
+            return;
+        }
+
+        synchronized (mLock) {
+            if ((mState & STATE_DONE) != STATE_DONE) {
+                // The retry may already have run if the delay was short
+                if (mAttempts == attempt && (mState & STATE_RUNNING) != STATE_RUNNING) {
+                    mRetryRequest = request;
+                }
+                return;
+            }
+        }
+        request.cancel();
+    }
+
+    private void runRetry() {
+        synchronized (mLock) {
+            mRetryRequest = null;
+            int state = mState;
+            if ((state & STATE_STARTED) != STATE_STARTED) return;
+            if ((state & STATE_DONE) == STATE_DONE) return;
+            if ((state & STATE_RUNNING) == STATE_RUNNING) return;
+        }
+        if (mMetrics != null) mSubmitTime = System.nanoTime();
+        FlightRecorder.record(FlightRecorder.EVENT_POST, FlightRecorder.SOURCE_TASK, mTraceId, mAttempts);
+
+        try {
+            onExecute(mBodyRunnable);
+        } catch (Throwable tr) {
+            failRetry(tr);
+        }
+    }
+
+    private void failRetry(@NonNull Throwable tr) {
+        synchronized (mLock) {
+            int state = mState;
+            if ((state & (STATE_DONE | STATE_RUNNING)) != STATE_STARTED) return;
+            List<Throwable> causes = mAttemptCauses;
+            if (causes != null && !causes.isEmpty()) {
+                // Report the last attempt's failure, the rejected resubmission is attached to it
+                Throwable last = causes.remove(causes.size() - 1);
+                last.addSuppressed(tr);
+                tr = last;
+            }
+            mState = STATE_FAILED;
+            mThrow = chainAttemptCauses(tr);
+            mAttemptCauses = null;
+
+            Handleable postHandle = mPostExec;
+            if (postHandle != null) {
+                mPostRun = null;
+                mPostHandle = postHandle;
+                mPostPending = true;
+            }
+            mLock.notifyAll();
+        }
+
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onStateChange(STATE_FAILED);
+        }
+        if (!mPostPending) return;
+
+        try {
+            onPostExecute(mPostRunnable);
+        } catch (Throwable t) {
+            synchronized (mLock) {
+                mState |= STATE_POST_FAILED;
+                mThrow.addSuppressed(t);
+                mPostPending = false;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /* Fails a task whose body was accepted by onExecute but will never run */
+    protected final void failQueued(@NonNull Throwable tr) {
+        failRetry(tr);
+    }
+
+    void onTimeout(@NonNull TaskTimer.Timeout timeout) {
+        int state;
+        Throwable throwable;
+        synchronized (mLock) {
+            if (mTimeoutEntry != timeout) return;
+            mTimeoutEntry = null;
+            state = mState;
+            if ((state & STATE_RUNNING) != STATE_RUNNING) return;
+            if ((state & STATE_DONE) == STATE_DONE) return;
+
+            state &= ~STATE_RUNNING;
+            state |= STATE_TIMED_OUT;
+            mState = state;
+            throwable = new TimeoutException("Task timed out after " + mTimeout + " ms");
+            mThrow = throwable;
+
+            Handleable postHandle = mPostExec;
+            if (postHandle != null) {
+                mPostRun = null;
+                mPostHandle = postHandle;
+                mPostPending = true;
+            }
+
+            Thread runner = mRunner;
+            if (mInterruptOnTimeout && runner != null) {
+                mTimeoutInterrupt = true;
+                runner.interrupt();
+            }
+            mLock.notifyAll();
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_RUN_END, FlightRecorder.SOURCE_TASK, mTraceId, state);
+
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onStateChange(state);
+            metrics.onFailure(throwable);
+        }
+        if (!mPostPending) return;
+
+        // An inline spawner would run the post-exec right here, keep it off the timer thread
+        TaskTimer.get().dispatch(this::postTimedOut);
+    }
+
+    private void postTimedOut() {
+        try {
+            onPostExecute(mPostRunnable);
+        } catch (Throwable tr) {
+            synchronized (mLock) {
+                mState |= STATE_POST_FAILED;
+                mThrow.addSuppressed(tr);
+                mPostPending = false;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    private void runPost() {
+        Metrics metrics = mMetrics;
+        long startTime = metrics != null ? System.nanoTime() : 0L;
+
+        Runnable postR;
+        Handleable postH;
+        synchronized (mLock) {
+            postR = mPostRun;
+            postH = mPostHandle;
+        }
+        FlightRecorder.record(FlightRecorder.EVENT_POST_EXEC, FlightRecorder.SOURCE_TASK, mTraceId, mState);
+
+        try {
+            if (postR != null) {
+                try {
+                    postR.run();
+                } catch (Throwable tr) {
+                    synchronized (mLock) {
+                        mState |= STATE_POST_FAILED;
+                        if (mThrow != null) mThrow.addSuppressed(tr);
+                        else mThrow = tr;
+                        mLock.notifyAll();
+                    }
+                }
+            }
+            if (postH != null) {
+                try {
+                    int st;
+                    Throwable tr;
+                    synchronized (mLock) {
+                        st = mState;
+                        tr = mThrow;
+                    }
+                    postH.handle(st, tr);
+                } catch (Throwable tr) {
+                    synchronized (mLock) {
+                        mState |= STATE_POST_FAILED;
+                        if (mThrow != null) mThrow.addSuppressed(tr);
+                        else mThrow = tr;
+                        mLock.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            synchronized (mLock) {
+                mPostRun = null;
+                mPostHandle = null;
+                mPostPending = false;
+                mLock.notifyAll();
+            }
+
+            if (metrics != null) {
+                int state = mState;
+                metrics.onPostExecute(System.nanoTime() - startTime, state);
+                if ((state & STATE_POST_FAILED) == STATE_POST_FAILED) {
+                    metrics.onStateChange(state);
+                    metrics.onFailure(mThrow);
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public boolean cancel() {
+        Request retryRequest;
         synchronized (mLock) {
             int state = mState;
             if ((state & STATE_CANCELED) == STATE_CANCELED) return true;
             if ((state & STATE_DONE) == STATE_DONE) return false;
             state |= STATE_CANCELED;
             mState = state;
+            retryRequest = mRetryRequest;
+            mRetryRequest = null;
+            mAttemptCauses = null;
             mLock.notifyAll();
-            return true;
         }
+        if (retryRequest != null) retryRequest.cancel();
+        FlightRecorder.record(FlightRecorder.EVENT_CANCEL, FlightRecorder.SOURCE_TASK, mTraceId, STATE_CANCELED);
+
+        Metrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onStateChange(STATE_CANCELED);
+        }
+        return true;
     }
 
     @Override
@@ -16,17 +16,33 @@
 
 package gvoid.concurrent.task;
 
+import annotation.GuardedBy;
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.metrics.Metrics;
 import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 @SuppressWarnings("unused")
 public class TaskSpawner implements Closeable {
+    public static int MAX_POOL_SIZE = 16;
+
     @NonNull
     public final Object mLock;
+    @Nullable
+    public volatile Metrics mMetrics;
+    /* Execution timeout in milliseconds applied to spawned tasks, 0 for none */
+    public volatile long mTimeout;
+    public volatile boolean mInterruptOnTimeout;
+    @Nullable
+    public volatile RetryPolicy mRetryPolicy;
 
     private boolean mClosed;
 
+    @GuardedBy("mLock")
+    private final Deque<Task> mPool;
+
     public TaskSpawner() {
         this(null);
     }
@@ -39,6 +55,10 @@ public class TaskSpawner implements Closeable {
         mLock = lock;
 
         mClosed = false;
+
+        synchronized (mLock) {
+            mPool = new ArrayDeque<>(4);
+        }
     }
 
     public final boolean isClosed() {
@@ -86,17 +106,38 @@ public class TaskSpawner implements Closeable {
                       @Nullable Handleable postExec) {
         synchronized (mLock) {
             throwIfClosed();
-            return new Task(exec, postExec, mLock) {
-                @Override
-                protected void onExecute(@NonNull Runnable runnable) throws Exception {
-                    TaskSpawner.this.onExecute(runnable);
-                }
-
-                @Override
-                protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
-                    TaskSpawner.this.onPostExecute(runnable);
-                }
-            };
+            Task task = mPool.pollFirst();
+            if (task == null) {
+                task = new SpawnedTask(exec, postExec);
+            } else {
+                task.mExec = exec;
+                task.mPostExec = postExec;
+            }
+            task.mMetrics = mMetrics;
+            task.mTimeout = mTimeout;
+            task.mInterruptOnTimeout = mInterruptOnTimeout;
+            task.mRetryPolicy = mRetryPolicy;
+            return task;
+        }
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean recycle(@Nullable Task task) {
+        if (!(task instanceof SpawnedTask)) return false;
+        if (((SpawnedTask) task).getSpawner() != this) return false;
+
+        synchronized (mLock) {
+            if (!task.reset()) return false;
+            task.mExec = null;
+            task.mPostExec = null;
+            task.mMetrics = null;
+            task.mTimeout = 0L;
+            task.mInterruptOnTimeout = false;
+            task.mRetryPolicy = null;
+
+            if (mClosed || mPool.size() >= MAX_POOL_SIZE) return true;
+            if (!mPool.contains(task)) mPool.offerFirst(task);
+            return true;
         }
     }
 
@@ -112,9 +153,14 @@ public class TaskSpawner implements Closeable {
     public void close() {
         synchronized (mLock) {
             mClosed = true;
+            mPool.clear();
         }
     }
 
+    protected int queueDepth() {
+        return -1;
+    }
+
     @SuppressWarnings("RedundantThrows")
     protected void onExecute(@NonNull Runnable runnable) throws Exception {
         new Thread(runnable).start();
@@ -124,4 +170,31 @@ public class TaskSpawner implements Closeable {
     protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
         runnable.run();
     }
+
+    private final class SpawnedTask extends Task {
+        private SpawnedTask(@Nullable Executable<Task> exec,
+                            @Nullable Handleable postExec) {
+            super(exec, postExec, TaskSpawner.this.mLock);
+        }
+
+        @NonNull
+        private TaskSpawner getSpawner() {
+            return TaskSpawner.this;
+        }
+
+        @Override
+        protected void onExecute(@NonNull Runnable runnable) throws Exception {
+            TaskSpawner.this.onExecute(runnable);
+
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onEnqueue(queueDepth());
+            }
+        }
+
+        @Override
+        protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
+            TaskSpawner.this.onPostExecute(runnable);
+        }
+    }
 }
@@ -18,6 +18,7 @@ package gvoid.concurrent.task;
 
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.metrics.Metrics;
 import java.io.Closeable;
 import java.util.ArrayDeque;
 import java.util.Deque;
@@ -27,6 +28,8 @@ import java.util.Iterator;
 public class TaskStack implements Closeable {
     @NonNull
     public final Object mLock;
+    @Nullable
+    public volatile Metrics mMetrics;
 
     private Deque<Task> mTasks;
 
@@ -128,6 +131,11 @@ public class TaskStack implements Closeable {
                 @Override
                 protected void onExecute(@NonNull Runnable runnable) throws Exception {
                     TaskStack.this.onExecute(runnable);
+
+                    Metrics metrics = TaskStack.this.mMetrics;
+                    if (metrics != null) {
+                        metrics.onEnqueue(queueDepth());
+                    }
                 }
 
                 @Override
@@ -138,6 +146,7 @@ public class TaskStack implements Closeable {
             if (!tasks.offerFirst(task)) {
                 throw new IllegalStateException("Unable to preserve task");
             }
+            task.mMetrics = mMetrics;
             return task;
         }
     }
@@ -216,6 +225,10 @@ public class TaskStack implements Closeable {
         }
     }
 
+    protected int queueDepth() {
+        return -1;
+    }
+
     @SuppressWarnings("RedundantThrows")
     protected void onExecute(@NonNull Runnable runnable) throws Exception {
         new Thread(runnable).start();
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel driven by a single daemon thread, enforcing task execution timeouts.
+ * Scheduling is lock-free, completed tasks hand their timeout back and it is unlinked on the next tick.
+ * Post-execution of timed out tasks is dispatched to a separate pool so the wheel never stalls.
+ */
+@SuppressWarnings("unused")
+public final class TaskTimer implements Runnable {
+    public static long TICK_DURATION = 10L;
+    public static int WHEEL_SIZE = 512;
+    public static long DISPATCH_KEEP_ALIVE_TIME = 20L * 1000L;
+
+    private static volatile TaskTimer sInstance;
+
+    private final long mTickNanos;
+    private final Bucket[] mWheel;
+    private final int mMask;
+    private final ConcurrentLinkedQueue<Timeout> mAdded;
+    private final ConcurrentLinkedQueue<Timeout> mCanceled;
+    private final Executor mDispatcher;
+    private final AtomicInteger mPending;
+    private final long mStartTime;
+    private long mTick;
+
+    private TaskTimer() {
+        int size = Integer.highestOneBit(Math.max(WHEEL_SIZE, 2) - 1) << 1;
+        mTickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(TICK_DURATION, 1L));
+        mWheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            mWheel[i] = new Bucket();
+        }
+        mMask = size - 1;
+        mAdded = new ConcurrentLinkedQueue<>();
+        mCanceled = new ConcurrentLinkedQueue<>();
+        mDispatcher = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                Math.max(DISPATCH_KEEP_ALIVE_TIME, 1L), TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "TaskTimer-dispatch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        mPending = new AtomicInteger();
+        mStartTime = System.nanoTime();
+    }
+
+    @NonNull
+    public static TaskTimer get() {
+        TaskTimer timer = sInstance;
+        if (timer != null) return timer;
+        synchronized (TaskTimer.class) {
+            timer = sInstance;
+            if (timer != null) return timer;
+            timer = new TaskTimer();
+            Thread thread = new Thread(timer, "TaskTimer");
+            thread.setDaemon(true);
+            thread.start();
+            sInstance = timer;
+            return timer;
+        }
+    }
+
+    public int getPendingCount() {
+        return mPending.get();
+    }
+
+    @NonNull
+    Timeout schedule(@NonNull Task task, long timeoutNanos) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + timeoutNanos);
+        mPending.incrementAndGet();
+        mAdded.offer(timeout);
+        return timeout;
+    }
+
+    void dispatch(@NonNull Runnable runnable) {
+        try {
+            mDispatcher.execute(runnable);
+        } catch (Throwable tr) {
+            runnable.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long deadline = mStartTime + (mTick + 1L) * mTickNanos;
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+
+            transferAdded();
+            transferCanceled();
+            Bucket bucket = mWheel[(int) (mTick & mMask)];
+            expire(bucket, now);
+            mTick++;
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = mAdded.poll()) != null) {
+            if (timeout.mCanceled) {
+                mPending.decrementAndGet();
+                continue;
+            }
+            long ticks = Math.max((timeout.mDeadline - mStartTime + mTickNanos - 1L) / mTickNanos, mTick);
+            timeout.mRounds = (ticks - mTick) / mWheel.length;
+            mWheel[(int) (ticks & mMask)].add(timeout);
+        }
+    }
+
+    private void transferCanceled() {
+        Timeout timeout;
+        while ((timeout = mCanceled.poll()) != null) {
+            // Not in a bucket means it was dropped while transferring or has expired already
+            Bucket bucket = timeout.mBucket;
+            if (bucket == null) continue;
+            bucket.remove(timeout);
+            mPending.decrementAndGet();
+        }
+    }
+
+    private void expire(@NonNull Bucket bucket, long now) {
+        Timeout timeout = bucket.mHead;
+        while (timeout != null) {
+            Timeout next = timeout.mNext;
+            if (timeout.mCanceled) {
+                bucket.remove(timeout);
+                mPending.decrementAndGet();
+            } else if (timeout.mRounds <= 0L && timeout.mDeadline - now <= 0L) {
+                bucket.remove(timeout);
+                mPending.decrementAndGet();
+                try {
+                    timeout.mTask.onTimeout(timeout);
+                } catch (Throwable tr) {
+                    tr.printStackTrace();
+                }
+            } else if (timeout.mRounds > 0L) {
+                timeout.mRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    static final class Timeout {
+        @NonNull
+        final TaskTimer mTimer;
+        @NonNull
+        final Task mTask;
+        final long mDeadline;
+        volatile boolean mCanceled;
+        long mRounds;
+        @Nullable
+        Bucket mBucket;
+        @Nullable
+        Timeout mPrev;
+        @Nullable
+        Timeout mNext;
+
+        Timeout(@NonNull TaskTimer timer, @NonNull Task task, long deadline) {
+            mTimer = timer;
+            mTask = task;
+            mDeadline = deadline;
+        }
+
+        void cancel() {
+            if (mCanceled) return;
+            mCanceled = true;
+            mTimer.mCanceled.offer(this);
+        }
+    }
+
+    private static final class Bucket {
+        @Nullable
+        Timeout mHead;
+        @Nullable
+        Timeout mTail;
+
+        void add(@NonNull Timeout timeout) {
+            timeout.mBucket = this;
+            timeout.mPrev = mTail;
+            timeout.mNext = null;
+            if (mTail == null) {
+                mHead = timeout;
+            } else mTail.mNext = timeout;
+            mTail = timeout;
+        }
+
+        void remove(@NonNull Timeout timeout) {
+            Timeout prev = timeout.mPrev;
+            Timeout next = timeout.mNext;
+            if (prev == null) {
+                mHead = next;
+            } else prev.mNext = next;
+            if (next == null) {
+                mTail = prev;
+            } else next.mPrev = prev;
+            timeout.mBucket = null;
+            timeout.mPrev = null;
+            timeout.mNext = null;
+        }
+    }
+}
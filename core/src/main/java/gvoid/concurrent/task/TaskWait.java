@@ -16,13 +16,19 @@
 
 package gvoid.concurrent.task;
 
+import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.exec.loop.LooperWatchdog;
+import gvoid.concurrent.util.Clock;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 @SuppressWarnings("unused")
 public final class TaskWait {
-    static final long UPDATE_PERIOD = 50L;
+    static final long UPDATE_PERIOD = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    @NonNull
+    public static Clock CLOCK = Clock.SYSTEM;
 
     /* -------- Wait for completion -------- */
     public static void awaitCompletion(Task task)
@@ -58,15 +64,16 @@ public final class TaskWait {
             throws InterruptedException {
         if (task == null) return false;
         if (unit == null) unit = TimeUnit.MILLISECONDS;
+        if (!task.isState(state)) LooperWatchdog.checkBlockingCall();
 
         Object lock = task.mLock;
         synchronized (lock) {
             Long rt = null;
-            long ct = getTime(), to = timeout >= 0L ? unit.toMillis(timeout) : -1L;
+            long ct = getTime(), to = timeout >= 0L ? unit.toNanos(timeout) : -1L;
             while (!task.isState(state) && (to < 0L || (rt = ct - getTime() + to) > 0L)) {
                 long wt = UPDATE_PERIOD;
                 if (rt != null) wt = Math.min(wt, rt);
-                lock.wait(wt);
+                await(lock, wt);
             }
             return rt != null && rt <= 0L;
         }
@@ -90,15 +97,16 @@ public final class TaskWait {
             throws InterruptedException {
         if (task == null) return false;
         if (unit == null) unit = TimeUnit.MILLISECONDS;
+        if (task.isState(state)) LooperWatchdog.checkBlockingCall();
 
         Object lock = task.mLock;
         synchronized (lock) {
             Long rt = null;
-            long ct = getTime(), to = timeout >= 0L ? unit.toMillis(timeout) : -1L;
+            long ct = getTime(), to = timeout >= 0L ? unit.toNanos(timeout) : -1L;
             while (task.isState(state) && (to < 0L || (rt = ct - getTime() + to) > 0L)) {
                 long wt = UPDATE_PERIOD;
                 if (rt != null) wt = Math.min(wt, rt);
-                lock.wait(wt);
+                await(lock, wt);
             }
             return rt != null && rt <= 0L;
         }
@@ -107,12 +115,17 @@ public final class TaskWait {
     /* -------- Utilities ------------------ */
     static long getTime() {
         try {
-            long time = System.currentTimeMillis();
-            if (time < 0L) time = -1L;
-            return time;
+            return CLOCK.nanoTime();
         } catch (Throwable ignored) {
         }
-        return -1L;
+        return 0L;
+    }
+
+    static void await(Object lock, long nanos) throws InterruptedException {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int rem = (int) (nanos - TimeUnit.MILLISECONDS.toNanos(millis));
+        if (millis <= 0L && rem <= 0) return;
+        lock.wait(millis, rem);
     }
 
     private TaskWait() {
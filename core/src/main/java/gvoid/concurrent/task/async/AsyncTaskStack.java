@@ -18,6 +18,7 @@ package gvoid.concurrent.task.async;
 
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
 import gvoid.concurrent.exec.loop.Handler;
 import gvoid.concurrent.task.executor.ExecutorTaskStack;
 import gvoid.concurrent.util.ExecutorHelper;
@@ -65,7 +66,7 @@ public class AsyncTaskStack extends ExecutorTaskStack {
             if (handler == null) {
                 throw new NullPointerException("No handler attached");
             }
-            handler.post(runnable);
+            handler.post(Request.obtain(runnable));
         }
     }
 
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.async;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.task.Handleable;
+import gvoid.concurrent.task.Task;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Spawns tasks backed by {@link AsynchronousFileChannel} operations. No spawner thread is held
+ * while the I/O is outstanding, the task completes from the channel's completion handler
+ * and its post-exec is delivered on the spawner's handler.
+ */
+@SuppressWarnings("unused")
+public class FileTaskSpawner extends AsyncTaskSpawner {
+    public static int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    public FileTaskSpawner() {
+        this(null, null, null);
+    }
+
+    public FileTaskSpawner(@Nullable Executor executor,
+                           @Nullable Handler handler) {
+        this(executor, handler, null);
+    }
+
+    protected FileTaskSpawner(@Nullable Executor executor,
+                              @Nullable Handler handler,
+                              @Nullable Object lock) {
+        super(executor, handler, lock);
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static FileTaskSpawner with(@Nullable Handler handler) {
+        return with(null, handler, true);
+    }
+
+    @NonNull
+    public static FileTaskSpawner with(@Nullable Executor executor,
+                                       @Nullable Handler handler,
+                                       boolean isShared) {
+        FileTaskSpawner spawner = new FileTaskSpawner();
+        spawner.mExecutor = executor;
+        spawner.mHandler = handler;
+        spawner.mShutdown = !isShared;
+        return spawner;
+    }
+
+    /* -------- File tasks ------------- */
+    @NonNull
+    public final FileTask read(@NonNull AsynchronousFileChannel channel,
+                               @NonNull ByteBuffer dst,
+                               long position) {
+        return read(channel, dst, position, null);
+    }
+
+    /* Result is the number of bytes read, or -1 at end of file */
+    @NonNull
+    public FileTask read(@NonNull AsynchronousFileChannel channel,
+                         @NonNull ByteBuffer dst,
+                         long position,
+                         @Nullable Handleable postExec) {
+        return start(new ReadOperation(channel, dst, position, false), postExec);
+    }
+
+    @NonNull
+    public final FileTask readFully(@NonNull AsynchronousFileChannel channel,
+                                    @NonNull ByteBuffer dst,
+                                    long position) {
+        return readFully(channel, dst, position, null);
+    }
+
+    /* Reads until the buffer is full or the end of file is reached, result is the number of bytes read */
+    @NonNull
+    public FileTask readFully(@NonNull AsynchronousFileChannel channel,
+                              @NonNull ByteBuffer dst,
+                              long position,
+                              @Nullable Handleable postExec) {
+        return start(new ReadOperation(channel, dst, position, true), postExec);
+    }
+
+    @NonNull
+    public final FileTask write(@NonNull AsynchronousFileChannel channel,
+                                @NonNull ByteBuffer src,
+                                long position) {
+        return write(channel, src, position, null);
+    }
+
+    /* Writes all remaining bytes of the buffer, result is the number of bytes written */
+    @NonNull
+    public FileTask write(@NonNull AsynchronousFileChannel channel,
+                          @NonNull ByteBuffer src,
+                          long position,
+                          @Nullable Handleable postExec) {
+        return start(new WriteOperation(channel, src, position), postExec);
+    }
+
+    @NonNull
+    public final FileTask transfer(@NonNull AsynchronousFileChannel src,
+                                   long srcPosition,
+                                   long count,
+                                   @NonNull AsynchronousFileChannel dst,
+                                   long dstPosition) {
+        return transfer(src, srcPosition, count, dst, dstPosition, DEFAULT_CHUNK_SIZE, null);
+    }
+
+    /* Copies up to count bytes chunk by chunk, result is the number of bytes transferred */
+    @NonNull
+    public FileTask transfer(@NonNull AsynchronousFileChannel src,
+                             long srcPosition,
+                             long count,
+                             @NonNull AsynchronousFileChannel dst,
+                             long dstPosition,
+                             int chunkSize,
+                             @Nullable Handleable postExec) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        return start(new TransferOperation(src, srcPosition, count, dst, dstPosition,
+                (int) Math.min(chunkSize, Math.max(count, 1L))), postExec);
+    }
+
+    @NonNull
+    private FileTask start(@NonNull Operation operation, @Nullable Handleable postExec) {
+        FileTask task;
+        synchronized (mLock) {
+            throwIfClosed();
+            task = new FileTask(operation, postExec);
+            task.mMetrics = mMetrics;
+        }
+        task.execute();
+        return task;
+    }
+
+    public class FileTask extends Task {
+        @NonNull
+        private final Operation mOperation;
+        private volatile long mResult;
+        private volatile Throwable mError;
+        private volatile Runnable mBody;
+
+        private FileTask(@NonNull Operation operation,
+                         @Nullable Handleable postExec) {
+            super(null, postExec, null);
+            mOperation = operation;
+            mExec = task -> {
+                Throwable error = mError;
+                if (error instanceof Exception) throw (Exception) error;
+                if (error != null) throw new ExecutionException(error);
+                return null;
+            };
+        }
+
+        public long getResult() {
+            return mResult;
+        }
+
+        @NonNull
+        public FileTaskSpawner getSpawner() {
+            return FileTaskSpawner.this;
+        }
+
+        void finish(long result, @Nullable Throwable error) {
+            mResult = result;
+            mError = error;
+            Runnable body = mBody;
+            mBody = null;
+            if (body != null) body.run();
+        }
+
+        @Override
+        protected void onExecute(@NonNull Runnable runnable) throws Exception {
+            mBody = runnable;
+            mOperation.start(this);
+        }
+
+        @Override
+        protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
+            FileTaskSpawner.this.onPostExecute(runnable);
+        }
+    }
+
+    /* -------- Operations ------------- */
+    private static abstract class Operation implements CompletionHandler<Integer, FileTask> {
+        long mTotal;
+
+        abstract void start(@NonNull FileTask task) throws IOException;
+
+        @Override
+        public void failed(Throwable exc, FileTask task) {
+            task.finish(mTotal, exc);
+        }
+    }
+
+    private static final class ReadOperation extends Operation {
+        final AsynchronousFileChannel mChannel;
+        final ByteBuffer mBuffer;
+        final long mPosition;
+        final boolean mFully;
+
+        ReadOperation(@NonNull AsynchronousFileChannel channel,
+                      @NonNull ByteBuffer buffer,
+                      long position,
+                      boolean fully) {
+            mChannel = channel;
+            mBuffer = buffer;
+            mPosition = position;
+            mFully = fully;
+        }
+
+        @Override
+        void start(@NonNull FileTask task) {
+            mChannel.read(mBuffer, mPosition + mTotal, task, this);
+        }
+
+        @Override
+        public void completed(Integer count, FileTask task) {
+            if (count < 0) {
+                task.finish(mFully || mTotal > 0L ? mTotal : -1L, null);
+                return;
+            }
+            mTotal += count;
+            if (mFully && mBuffer.hasRemaining() && !task.isDone()) {
+                try {
+                    start(task);
+                } catch (Throwable tr) {
+                    failed(tr, task);
+                }
+                return;
+            }
+            task.finish(mTotal, null);
+        }
+    }
+
+    private static final class WriteOperation extends Operation {
+        final AsynchronousFileChannel mChannel;
+        final ByteBuffer mBuffer;
+        final long mPosition;
+
+        WriteOperation(@NonNull AsynchronousFileChannel channel,
+                       @NonNull ByteBuffer buffer,
+                       long position) {
+            mChannel = channel;
+            mBuffer = buffer;
+            mPosition = position;
+        }
+
+        @Override
+        void start(@NonNull FileTask task) {
+            mChannel.write(mBuffer, mPosition + mTotal, task, this);
+        }
+
+        @Override
+        public void completed(Integer count, FileTask task) {
+            mTotal += count;
+            if (mBuffer.hasRemaining() && !task.isDone()) {
+                try {
+                    start(task);
+                } catch (Throwable tr) {
+                    failed(tr, task);
+                }
+                return;
+            }
+            task.finish(mTotal, null);
+        }
+    }
+
+    private static final class TransferOperation extends Operation {
+        final AsynchronousFileChannel mSrc;
+        final AsynchronousFileChannel mDst;
+        final long mSrcPosition;
+        final long mDstPosition;
+        final long mCount;
+        final ByteBuffer mBuffer;
+        boolean mWriting;
+
+        TransferOperation(@NonNull AsynchronousFileChannel src,
+                          long srcPosition,
+                          long count,
+                          @NonNull AsynchronousFileChannel dst,
+                          long dstPosition,
+                          int chunkSize) {
+            mSrc = src;
+            mDst = dst;
+            mSrcPosition = srcPosition;
+            mDstPosition = dstPosition;
+            mCount = count;
+            mBuffer = ByteBuffer.allocateDirect(chunkSize);
+        }
+
+        @Override
+        void start(@NonNull FileTask task) {
+            long remaining = mCount - mTotal;
+            if (remaining <= 0L) {
+                task.finish(mTotal, null);
+                return;
+            }
+            mWriting = false;
+            mBuffer.clear();
+            if (remaining < mBuffer.capacity()) mBuffer.limit((int) remaining);
+            mSrc.read(mBuffer, mSrcPosition + mTotal, task, this);
+        }
+
+        @Override
+        public void completed(Integer count, FileTask task) {
+            try {
+                if (!mWriting) {
+                    if (count < 0 || task.isDone()) {
+                        task.finish(mTotal, null);
+                        return;
+                    }
+                    mWriting = true;
+                    mBuffer.flip();
+                } else {
+                    mTotal += count;
+                    if (!mBuffer.hasRemaining()) {
+                        if (task.isDone()) {
+                            task.finish(mTotal, null);
+                        } else start(task);
+                        return;
+                    }
+                }
+                mDst.write(mBuffer, mDstPosition + mTotal, task, this);
+            } catch (Throwable tr) {
+                failed(tr, task);
+            }
+        }
+    }
+}
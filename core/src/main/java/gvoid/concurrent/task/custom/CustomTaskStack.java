@@ -18,6 +18,7 @@ package gvoid.concurrent.task.custom;
 
 import annotation.NonNull;
 import annotation.Nullable;
+import gvoid.concurrent.exec.Request;
 import gvoid.concurrent.exec.loop.Handler;
 import gvoid.concurrent.task.TaskStack;
 
@@ -76,7 +77,7 @@ public class CustomTaskStack extends TaskStack {
             if (handler == null) {
                 throw new NullPointerException("No handler attached");
             }
-            handler.post(runnable);
+            handler.post(Request.obtain(runnable));
         }
     }
 
@@ -89,7 +90,7 @@ public class CustomTaskStack extends TaskStack {
             if (postHandler == null) {
                 throw new NullPointerException("No post handler attached");
             }
-            postHandler.post(runnable);
+            postHandler.post(Request.obtain(runnable));
         }
     }
 
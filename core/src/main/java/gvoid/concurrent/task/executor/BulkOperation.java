@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.executor;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.loop.Handler;
+import gvoid.concurrent.exec.loop.LooperWatchdog;
+import gvoid.concurrent.task.async.AsyncTaskSpawner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index range processed in chunks by up to {@link ParallelTasks#PARALLELISM} spawner tasks.
+ * The chunk size is picked from the measured cost of a small inline sample, a thread
+ * calling {@link #await()} helps processing the remaining chunks.
+ */
+@SuppressWarnings("unused")
+public abstract class BulkOperation<R> {
+    @NonNull
+    public final Object mLock;
+    public final int mSize;
+
+    @NonNull
+    private final AtomicInteger mNextIndex;
+    @NonNull
+    private final AtomicInteger mHelping;
+    private volatile int mChunkSize;
+    private volatile int mSample;
+    private volatile boolean mFailed;
+
+    @GuardedBy("mLock")
+    private int mActive;
+    @GuardedBy("mLock")
+    private boolean mFinishing;
+    @GuardedBy("mLock")
+    private boolean mDone;
+    @GuardedBy("mLock")
+    private R mResult;
+    @GuardedBy("mLock")
+    private Throwable mError;
+    @GuardedBy("mLock")
+    private Callback<? super R> mCallback;
+    @Nullable
+    private volatile Handler mHandler;
+
+    protected BulkOperation(int size) {
+        mLock = new Object();
+        mSize = size;
+        mNextIndex = new AtomicInteger();
+        mHelping = new AtomicInteger();
+        mChunkSize = 1;
+    }
+
+    /* Chunk 0 is the inline sample, chunk k > 0 covers the k-th range after it, each chunk is processed once */
+    protected abstract void process(int from, int to, int chunk) throws Exception;
+
+    @Nullable
+    protected abstract R combine() throws Exception;
+
+    /* Called once with the total chunk count, after the sample and before any other chunk */
+    protected void prepare(int chunks) {
+    }
+
+    public int getChunkSize() {
+        return mChunkSize;
+    }
+
+    public boolean isDone() {
+        synchronized (mLock) {
+            return mDone;
+        }
+    }
+
+    /* -------- Execution -------------- */
+    @NonNull
+    final BulkOperation<R> start(@NonNull ExecutorTaskSpawner spawner) {
+        if (spawner instanceof AsyncTaskSpawner) {
+            mHandler = ((AsyncTaskSpawner) spawner).mHandler;
+        }
+
+        int parallelism = Math.max(ParallelTasks.PARALLELISM, 1);
+        int sample = Math.min(mSize, ParallelTasks.SAMPLE_SIZE);
+        mSample = sample;
+        long startTime = System.nanoTime();
+        if (!run(0, sample, 0)) {
+            mNextIndex.set(mSize);
+            finish();
+            return this;
+        }
+        long cost = Math.max((System.nanoTime() - startTime) / Math.max(sample, 1), 1L);
+        mNextIndex.set(sample);
+
+        int remaining = mSize - sample;
+        if (remaining <= 0 || remaining * cost <= ParallelTasks.TARGET_CHUNK_NANOS) {
+            mChunkSize = Math.max(remaining, 1);
+            prepare(remaining > 0 ? 2 : 1);
+            work();
+            finish();
+            return this;
+        }
+
+        long chunk = ParallelTasks.TARGET_CHUNK_NANOS / cost;
+        long balanced = (remaining + parallelism * 4L - 1L) / (parallelism * 4L);
+        chunk = Math.max(Math.min(chunk, balanced), ParallelTasks.MIN_CHUNK_SIZE);
+        mChunkSize = (int) Math.min(chunk, remaining);
+
+        int chunks = (int) ((remaining + mChunkSize - 1L) / mChunkSize);
+        prepare(chunks + 1);
+
+        int workers = Math.min(parallelism, chunks);
+        synchronized (mLock) {
+            mActive = workers;
+        }
+        for (int i = 0; i < workers; i++) {
+            try {
+                spawner.execute(task -> {
+                    runWorker();
+                    return null;
+                });
+            } catch (Throwable tr) {
+                // Rejected by the spawner, work this share on the calling thread instead
+                runWorker();
+            }
+        }
+        return this;
+    }
+
+    private void runWorker() {
+        try {
+            work();
+        } finally {
+            boolean last;
+            synchronized (mLock) {
+                last = --mActive == 0;
+            }
+            if (last) finish();
+        }
+    }
+
+    private void work() {
+        int size = mSize;
+        int sample = mSample;
+        int chunk = mChunkSize;
+        while (!mFailed) {
+            int from = mNextIndex.getAndAdd(chunk);
+            if (from >= size || from < 0) break;
+            if (!run(from, Math.min(from + chunk, size), 1 + (from - sample) / chunk)) break;
+        }
+    }
+
+    private boolean run(int from, int to, int chunk) {
+        if (from >= to) return true;
+        try {
+            process(from, to, chunk);
+            return true;
+        } catch (Throwable tr) {
+            synchronized (mLock) {
+                if (mError == null) mError = tr;
+            }
+            mFailed = true;
+            return false;
+        }
+    }
+
+    private void finish() {
+        R result = null;
+        Throwable error;
+        synchronized (mLock) {
+            if (mFinishing) return;
+            mFinishing = true;
+            error = mError;
+        }
+        if (error == null) {
+            try {
+                result = combine();
+            } catch (Throwable tr) {
+                error = tr;
+            }
+        }
+
+        Callback<? super R> callback;
+        synchronized (mLock) {
+            mDone = true;
+            mResult = result;
+            mError = error;
+            callback = mCallback;
+            mCallback = null;
+            mLock.notifyAll();
+        }
+        if (callback != null) deliver(callback, result, error);
+    }
+
+    /* -------- Results ---------------- */
+    /* The result is delivered once, on the handler of an AsyncTaskSpawner or else on the finishing thread */
+    @NonNull
+    public BulkOperation<R> onDone(@NonNull Callback<? super R> callback) {
+        R result;
+        Throwable error;
+        synchronized (mLock) {
+            if (!mDone) {
+                if (mCallback != null) {
+                    throw new IllegalStateException("Callback already attached");
+                }
+                mCallback = callback;
+                return this;
+            }
+            result = mResult;
+            error = mError;
+        }
+        deliver(callback, result, error);
+        return this;
+    }
+
+    private void deliver(@NonNull Callback<? super R> callback, @Nullable R result, @Nullable Throwable error) {
+        Handler handler = mHandler;
+        if (handler != null && !handler.isClosed()) {
+            handler.post((Runnable) () -> callback.onDone(result, error));
+        } else {
+            callback.onDone(result, error);
+        }
+    }
+
+    @Nullable
+    public R await() throws InterruptedException, ExecutionException {
+        if (mHelping.compareAndSet(0, 1)) {
+            boolean helped;
+            synchronized (mLock) {
+                helped = !mFinishing;
+                if (helped) mActive++;
+            }
+            if (helped) runWorker();
+        }
+
+        synchronized (mLock) {
+            if (!mDone) LooperWatchdog.checkBlockingCall();
+            while (!mDone) {
+                mLock.wait();
+            }
+            if (mError != null) {
+                throw new ExecutionException(mError);
+            }
+            return mResult;
+        }
+    }
+
+    public interface Callback<R> {
+        void onDone(@Nullable R result, @Nullable Throwable error);
+    }
+}
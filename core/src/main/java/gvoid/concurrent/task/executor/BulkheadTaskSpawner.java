@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.executor;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Spawner that caps how many of its tasks occupy the (usually shared) executor at once.
+ * Excess tasks wait in a bounded queue owned by the spawner instead of in the pool.
+ */
+@SuppressWarnings("unused")
+public class BulkheadTaskSpawner extends ExecutorTaskSpawner {
+    public static int DEFAULT_MAX_CONCURRENT = 4;
+    public static int DEFAULT_MAX_QUEUED = 256;
+
+    public volatile int mMaxConcurrent;
+    public volatile int mMaxQueued;
+
+    @GuardedBy("mQueue")
+    private final ArrayDeque<Runnable> mQueue;
+    @NonNull
+    private final Runnable mDrainRunnable;
+
+    @GuardedBy("mQueue")
+    private int mActive;
+    @GuardedBy("mQueue")
+    private int mPeakActive;
+    @GuardedBy("mQueue")
+    private long mAdmittedCount;
+    @GuardedBy("mQueue")
+    private long mSaturatedCount;
+    @GuardedBy("mQueue")
+    private long mRejectedCount;
+    @GuardedBy("mQueue")
+    private long mCompletedCount;
+
+    public BulkheadTaskSpawner() {
+        this(null, null);
+    }
+
+    public BulkheadTaskSpawner(@Nullable Executor executor) {
+        this(executor, null);
+    }
+
+    protected BulkheadTaskSpawner(@Nullable Executor executor,
+                                  @Nullable Object lock) {
+        super(executor, lock);
+
+        mMaxConcurrent = DEFAULT_MAX_CONCURRENT;
+        mMaxQueued = DEFAULT_MAX_QUEUED;
+        mQueue = new ArrayDeque<>(16);
+        mDrainRunnable = this::drain;
+    }
+
+    /* -------- Saturation ------------- */
+    public int getActiveCount() {
+        synchronized (mQueue) {
+            return mActive;
+        }
+    }
+
+    public int getPeakActiveCount() {
+        synchronized (mQueue) {
+            return mPeakActive;
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (mQueue) {
+            return mQueue.size();
+        }
+    }
+
+    /* Tasks accepted by the bulkhead, including those that had to wait */
+    public long getAdmittedCount() {
+        synchronized (mQueue) {
+            return mAdmittedCount;
+        }
+    }
+
+    /* Tasks that found every slot taken and had to wait in the bulkhead queue */
+    public long getSaturatedCount() {
+        synchronized (mQueue) {
+            return mSaturatedCount;
+        }
+    }
+
+    public long getRejectedCount() {
+        synchronized (mQueue) {
+            return mRejectedCount;
+        }
+    }
+
+    public long getCompletedCount() {
+        synchronized (mQueue) {
+            return mCompletedCount;
+        }
+    }
+
+    public double getSaturation() {
+        int maxConcurrent = Math.max(mMaxConcurrent, 1);
+        synchronized (mQueue) {
+            return (double) mActive / maxConcurrent;
+        }
+    }
+
+    public void resetPeak() {
+        synchronized (mQueue) {
+            mPeakActive = mActive;
+        }
+    }
+
+    @Override
+    protected int queueDepth() {
+        synchronized (mQueue) {
+            return mQueue.size();
+        }
+    }
+
+    @Override
+    protected void onExecute(@NonNull Runnable runnable) throws Exception {
+        throwIfClosed();
+        synchronized (mQueue) {
+            int active = mActive;
+            boolean saturated = active >= Math.max(mMaxConcurrent, 1);
+            if (saturated && mQueue.size() >= mMaxQueued) {
+                mRejectedCount++;
+                throw new RejectedExecutionException("Bulkhead is saturated");
+            }
+            mQueue.offerLast(runnable);
+            mAdmittedCount++;
+            if (saturated) {
+                mSaturatedCount++;
+                return;
+            }
+            mActive = ++active;
+            if (active > mPeakActive) mPeakActive = active;
+        }
+
+        try {
+            super.onExecute(mDrainRunnable);
+        } catch (Throwable tr) {
+            synchronized (mQueue) {
+                mActive--;
+                // Another slot may have picked the runnable up already
+                if (!mQueue.removeLastOccurrence(runnable)) return;
+                mAdmittedCount--;
+                mRejectedCount++;
+            }
+            throw tr;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable runnable;
+            synchronized (mQueue) {
+                runnable = mQueue.pollFirst();
+                if (runnable == null) {
+                    mActive--;
+                    return;
+                }
+            }
+            try {
+                runnable.run();
+            } catch (Throwable tr) {
+                tr.printStackTrace();
+            }
+
+            synchronized (mQueue) {
+                mCompletedCount++;
+                if (mQueue.isEmpty() || mActive > Math.max(mMaxConcurrent, 1)) {
+                    mActive--;
+                    return;
+                }
+            }
+            // Hand the slot back to the pool so other spawners sharing it get a turn,
+            // once closed the remaining queue is drained on this thread instead
+            try {
+                super.onExecute(mDrainRunnable);
+                return;
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static BulkheadTaskSpawner with(@Nullable Executor executor,
+                                           int maxConcurrent) {
+        return with(executor, maxConcurrent, DEFAULT_MAX_QUEUED);
+    }
+
+    @NonNull
+    public static BulkheadTaskSpawner with(@Nullable Executor executor,
+                                           int maxConcurrent,
+                                           int maxQueued) {
+        BulkheadTaskSpawner spawner = new BulkheadTaskSpawner(executor);
+        spawner.mMaxConcurrent = maxConcurrent;
+        spawner.mMaxQueued = maxQueued;
+        spawner.mShutdown = false;
+        return spawner;
+    }
+}
@@ -22,6 +22,7 @@ import gvoid.concurrent.task.TaskSpawner;
 import gvoid.concurrent.util.ExecutorHelper;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @SuppressWarnings("unused")
 public class ExecutorTaskSpawner extends TaskSpawner {
@@ -66,6 +67,15 @@ public class ExecutorTaskSpawner extends TaskSpawner {
         }
     }
 
+    @Override
+    protected int queueDepth() {
+        Executor executor = mExecutor;
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return -1;
+    }
+
     @SuppressWarnings("RedundantThrows")
     @Override
     protected void onExecute(@NonNull Runnable runnable) throws Exception {
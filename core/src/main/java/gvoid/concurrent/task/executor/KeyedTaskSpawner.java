@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.executor;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.metrics.Metrics;
+import gvoid.concurrent.task.Executable;
+import gvoid.concurrent.task.Handleable;
+import gvoid.concurrent.task.Task;
+import gvoid.concurrent.util.ExecutorHelper;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks of the same key one at a time in submission order, tasks of different keys
+ * run in parallel on the shared executor. A key only holds state while it has pending tasks.
+ * A task waiting for a retry keeps its key, later tasks of the key run after the retry.
+ */
+@SuppressWarnings("unused")
+public class KeyedTaskSpawner extends ExecutorTaskSpawner {
+    public static int DEFAULT_BATCH_SIZE = 16;
+
+    public volatile int mBatchSize;
+
+    @NonNull
+    private final ConcurrentHashMap<Object, KeyQueue> mQueues;
+
+    public KeyedTaskSpawner() {
+        this(null, null);
+    }
+
+    public KeyedTaskSpawner(@Nullable Executor executor) {
+        this(executor, null);
+    }
+
+    protected KeyedTaskSpawner(@Nullable Executor executor,
+                               @Nullable Object lock) {
+        super(executor, lock);
+
+        mBatchSize = DEFAULT_BATCH_SIZE;
+        mQueues = new ConcurrentHashMap<>();
+    }
+
+    public int activeKeyCount() {
+        return mQueues.size();
+    }
+
+    public int pendingCount(@NonNull Object key) {
+        KeyQueue queue = mQueues.get(key);
+        if (queue == null) return 0;
+        synchronized (queue) {
+            return queue.mTasks.size();
+        }
+    }
+
+    /* -------- Keyed tasks ------------ */
+    @NonNull
+    public final Task execute(@NonNull Object key,
+                              @Nullable Executable<Task> exec) {
+        return execute(key, exec, null);
+    }
+
+    @NonNull
+    public Task execute(@NonNull Object key,
+                        @Nullable Executable<Task> exec,
+                        @Nullable Handleable postExec) {
+        Task task = spawn(key, exec, postExec);
+        task.execute();
+        return task;
+    }
+
+    @NonNull
+    public final Task spawn(@NonNull Object key,
+                            @Nullable Executable<Task> exec) {
+        return spawn(key, exec, null);
+    }
+
+    @NonNull
+    public Task spawn(@NonNull Object key,
+                      @Nullable Executable<Task> exec,
+                      @Nullable Handleable postExec) {
+        synchronized (mLock) {
+            throwIfClosed();
+            KeyedTask task = new KeyedTask(key, exec, postExec);
+            task.mMetrics = mMetrics;
+            task.mTimeout = mTimeout;
+            task.mInterruptOnTimeout = mInterruptOnTimeout;
+            task.mRetryPolicy = mRetryPolicy;
+            return task;
+        }
+    }
+
+    private void enqueue(@NonNull KeyedTask task) throws Exception {
+        while (true) {
+            KeyQueue queue = mQueues.computeIfAbsent(task.mKey, KeyQueue::new);
+            synchronized (queue) {
+                // Lost the race against the queue retiring itself, use a fresh one
+                if (queue.mRetired) continue;
+                if (queue.mCurrent == task) {
+                    // Retried before the previous attempt returned, the running queue picks it up next
+                    queue.mCurrent = null;
+                    queue.mTasks.offerFirst(task);
+                    return;
+                }
+                if (queue.mHeld == task) {
+                    queue.mHeld = null;
+                    queue.mTasks.offerFirst(task);
+                } else {
+                    queue.mTasks.offerLast(task);
+                    if (queue.mScheduled) return;
+                    queue.mScheduled = true;
+                }
+            }
+            schedule(queue, task);
+            return;
+        }
+    }
+
+    private void release(@NonNull KeyedTask task) {
+        KeyQueue queue = mQueues.get(task.mKey);
+        if (queue == null) return;
+        synchronized (queue) {
+            if (queue.mHeld != task) return;
+            queue.mHeld = null;
+        }
+        try {
+            schedule(queue, null);
+        } catch (Exception ignored) {
+            // The queued tasks were failed already
+        }
+    }
+
+    private void schedule(@NonNull KeyQueue queue, @Nullable KeyedTask task) throws Exception {
+        try {
+            onExecute(queue);
+        } catch (Throwable tr) {
+            // Tasks queued behind this one by other submitters would never run, fail them too
+            ArrayDeque<KeyedTask> stranded;
+            synchronized (queue) {
+                if (task != null) queue.mTasks.remove(task);
+                stranded = new ArrayDeque<>(queue.mTasks);
+                queue.mTasks.clear();
+                queue.mScheduled = false;
+                queue.mRetired = true;
+                mQueues.remove(queue.mKey, queue);
+            }
+            for (KeyedTask other : stranded) {
+                other.fail(new IllegalStateException("Key queue could not be scheduled", tr));
+            }
+            throw tr;
+        }
+    }
+
+    private final class KeyQueue implements Runnable {
+        @NonNull
+        final Object mKey;
+        @GuardedBy("this")
+        final ArrayDeque<KeyedTask> mTasks;
+        @GuardedBy("this")
+        boolean mScheduled;
+        @GuardedBy("this")
+        boolean mRetired;
+        @GuardedBy("this")
+        KeyedTask mCurrent;
+        @GuardedBy("this")
+        KeyedTask mHeld;
+
+        KeyQueue(@NonNull Object key) {
+            mKey = key;
+            mTasks = new ArrayDeque<>(4);
+        }
+
+        @Override
+        public void run() {
+            int batchSize = Math.max(mBatchSize, 1);
+            int count = 0;
+            while (true) {
+                KeyedTask task;
+                synchronized (this) {
+                    task = mTasks.pollFirst();
+                    if (task == null) {
+                        mScheduled = false;
+                        mRetired = true;
+                        mQueues.remove(mKey, this);
+                        return;
+                    }
+                    mCurrent = task;
+                }
+                try {
+                    task.mRunnable.run();
+                } catch (Throwable tr) {
+                    tr.printStackTrace();
+                }
+
+                synchronized (this) {
+                    // Started but neither running nor done means a retry is pending, hold the key for it
+                    int state = task.getState();
+                    if (mCurrent == task && (state & (Task.STATE_DONE | Task.STATE_RUNNING)) == Task.STATE_STARTED) {
+                        mCurrent = null;
+                        mHeld = task;
+                        return;
+                    }
+                    mCurrent = null;
+                }
+
+                if (++count < batchSize) continue;
+                synchronized (this) {
+                    if (mTasks.isEmpty()) continue;
+                }
+                // Give other keys a turn, the queue stays scheduled
+                try {
+                    onExecute(this);
+                    return;
+                } catch (Throwable ignored) {
+                    count = 0;
+                }
+            }
+        }
+    }
+
+    private final class KeyedTask extends Task {
+        @NonNull
+        private final Object mKey;
+        private volatile Runnable mRunnable;
+
+        private KeyedTask(@NonNull Object key,
+                          @Nullable Executable<Task> exec,
+                          @Nullable Handleable postExec) {
+            super(exec, postExec, null);
+            mKey = key;
+        }
+
+        @Override
+        protected void onExecute(@NonNull Runnable runnable) throws Exception {
+            mRunnable = runnable;
+            enqueue(this);
+
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onEnqueue(queueDepth());
+            }
+        }
+
+        @Override
+        protected void onPostExecute(@NonNull Runnable runnable) throws Exception {
+            KeyedTaskSpawner.this.onPostExecute(runnable);
+        }
+
+        @Override
+        public boolean cancel() {
+            boolean canceled = super.cancel();
+            // A canceled retry never comes back, let the key move on
+            release(this);
+            return canceled;
+        }
+
+        private void fail(@NonNull Throwable tr) {
+            failQueued(tr);
+        }
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static KeyedTaskSpawner with(@Nullable Executor executor) {
+        return with(executor, true);
+    }
+
+    @NonNull
+    public static KeyedTaskSpawner with(@Nullable Executor executor,
+                                        boolean isShared) {
+        KeyedTaskSpawner spawner = new KeyedTaskSpawner();
+        spawner.mExecutor = executor;
+        spawner.mShutdown = !isShared;
+        return spawner;
+    }
+
+    @NonNull
+    public static KeyedTaskSpawner create() {
+        return with(ExecutorHelper.create(), false);
+    }
+
+    @NonNull
+    public static KeyedTaskSpawner create(int corePoolSize) {
+        return with(ExecutorHelper.create(
+                corePoolSize
+        ), false);
+    }
+}
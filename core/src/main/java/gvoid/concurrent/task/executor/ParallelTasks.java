@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.executor;
+
+import annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+
+@SuppressWarnings("unused")
+public final class ParallelTasks {
+    public static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static long TARGET_CHUNK_NANOS = 100000L;
+    public static int SAMPLE_SIZE = 32;
+    public static int MIN_CHUNK_SIZE = 16;
+
+    private ParallelTasks() {
+        throw new UnsupportedOperationException();
+    }
+
+    /* -------- For each --------------- */
+    @NonNull
+    public static <T> BulkOperation<Void> parallelForEach(@NonNull ExecutorTaskSpawner spawner,
+                                                          @NonNull List<? extends T> list,
+                                                          @NonNull Consumer<? super T> action) {
+        List<? extends T> items = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        return new BulkOperation<Void>(items.size()) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) action.accept(items.get(i));
+            }
+
+            @Override
+            protected Void combine() {
+                return null;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static <T> BulkOperation<Void> parallelForEach(@NonNull ExecutorTaskSpawner spawner,
+                                                          @NonNull T[] array,
+                                                          @NonNull Consumer<? super T> action) {
+        return parallelForEach(spawner, Arrays.asList(array), action);
+    }
+
+    @NonNull
+    public static BulkOperation<Void> parallelForEach(@NonNull ExecutorTaskSpawner spawner,
+                                                      @NonNull int[] array,
+                                                      @NonNull IntConsumer action) {
+        return new BulkOperation<Void>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) action.accept(array[i]);
+            }
+
+            @Override
+            protected Void combine() {
+                return null;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<Void> parallelForEach(@NonNull ExecutorTaskSpawner spawner,
+                                                      @NonNull long[] array,
+                                                      @NonNull LongConsumer action) {
+        return new BulkOperation<Void>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) action.accept(array[i]);
+            }
+
+            @Override
+            protected Void combine() {
+                return null;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<Void> parallelForEach(@NonNull ExecutorTaskSpawner spawner,
+                                                      @NonNull double[] array,
+                                                      @NonNull DoubleConsumer action) {
+        return new BulkOperation<Void>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) action.accept(array[i]);
+            }
+
+            @Override
+            protected Void combine() {
+                return null;
+            }
+        }.start(spawner);
+    }
+
+    /* -------- Map -------------------- */
+    @NonNull
+    public static <T, R> BulkOperation<List<R>> parallelMap(@NonNull ExecutorTaskSpawner spawner,
+                                                            @NonNull List<? extends T> list,
+                                                            @NonNull Function<? super T, ? extends R> mapper) {
+        List<? extends T> items = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        Object[] out = new Object[items.size()];
+        return new BulkOperation<List<R>>(items.size()) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) out[i] = mapper.apply(items.get(i));
+            }
+
+            @Override
+            protected List<R> combine() {
+                @SuppressWarnings("unchecked")
+                List<R> result = (List<R>) (List<?>) Arrays.asList(out);
+                return result;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<int[]> parallelMap(@NonNull ExecutorTaskSpawner spawner,
+                                                   @NonNull int[] array,
+                                                   @NonNull IntUnaryOperator mapper) {
+        int[] out = new int[array.length];
+        return new BulkOperation<int[]>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) out[i] = mapper.applyAsInt(array[i]);
+            }
+
+            @Override
+            protected int[] combine() {
+                return out;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<long[]> parallelMap(@NonNull ExecutorTaskSpawner spawner,
+                                                    @NonNull long[] array,
+                                                    @NonNull LongUnaryOperator mapper) {
+        long[] out = new long[array.length];
+        return new BulkOperation<long[]>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) out[i] = mapper.applyAsLong(array[i]);
+            }
+
+            @Override
+            protected long[] combine() {
+                return out;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<double[]> parallelMap(@NonNull ExecutorTaskSpawner spawner,
+                                                      @NonNull double[] array,
+                                                      @NonNull DoubleUnaryOperator mapper) {
+        double[] out = new double[array.length];
+        return new BulkOperation<double[]>(array.length) {
+            @Override
+            protected void process(int from, int to, int chunk) {
+                for (int i = from; i < to; i++) out[i] = mapper.applyAsDouble(array[i]);
+            }
+
+            @Override
+            protected double[] combine() {
+                return out;
+            }
+        }.start(spawner);
+    }
+
+    /* -------- Reduce ----------------- */
+    /* The operator must be associative and identity neutral, every chunk folds into its own partial and
+     * the partials are combined in chunk order, so the operator need not be commutative */
+    @NonNull
+    public static <T> BulkOperation<T> parallelReduce(@NonNull ExecutorTaskSpawner spawner,
+                                                      @NonNull List<? extends T> list,
+                                                      T identity,
+                                                      @NonNull BinaryOperator<T> operator) {
+        List<? extends T> items = list instanceof RandomAccess ? list : new ArrayList<>(list);
+        return new BulkOperation<T>(items.size()) {
+            private T mFirst = identity;
+            private AtomicReferenceArray<T> mPartials;
+
+            @Override
+            protected void prepare(int chunks) {
+                mPartials = new AtomicReferenceArray<>(chunks);
+            }
+
+            @Override
+            protected void process(int from, int to, int chunk) {
+                T acc = identity;
+                for (int i = from; i < to; i++) acc = operator.apply(acc, items.get(i));
+                if (chunk == 0) mFirst = acc;
+                else mPartials.set(chunk, acc);
+            }
+
+            @Override
+            protected T combine() {
+                T acc = mFirst;
+                for (int i = 1; i < mPartials.length(); i++) acc = operator.apply(acc, mPartials.get(i));
+                return acc;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<Integer> parallelReduce(@NonNull ExecutorTaskSpawner spawner,
+                                                        @NonNull int[] array,
+                                                        int identity,
+                                                        @NonNull IntBinaryOperator operator) {
+        return new BulkOperation<Integer>(array.length) {
+            private int mFirst = identity;
+            private int[] mPartials;
+
+            @Override
+            protected void prepare(int chunks) {
+                mPartials = new int[chunks];
+            }
+
+            @Override
+            protected void process(int from, int to, int chunk) {
+                int acc = identity;
+                for (int i = from; i < to; i++) acc = operator.applyAsInt(acc, array[i]);
+                if (chunk == 0) mFirst = acc;
+                else mPartials[chunk] = acc;
+            }
+
+            @Override
+            protected Integer combine() {
+                int acc = mFirst;
+                for (int i = 1; i < mPartials.length; i++) acc = operator.applyAsInt(acc, mPartials[i]);
+                return acc;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<Long> parallelReduce(@NonNull ExecutorTaskSpawner spawner,
+                                                     @NonNull long[] array,
+                                                     long identity,
+                                                     @NonNull LongBinaryOperator operator) {
+        return new BulkOperation<Long>(array.length) {
+            private long mFirst = identity;
+            private long[] mPartials;
+
+            @Override
+            protected void prepare(int chunks) {
+                mPartials = new long[chunks];
+            }
+
+            @Override
+            protected void process(int from, int to, int chunk) {
+                long acc = identity;
+                for (int i = from; i < to; i++) acc = operator.applyAsLong(acc, array[i]);
+                if (chunk == 0) mFirst = acc;
+                else mPartials[chunk] = acc;
+            }
+
+            @Override
+            protected Long combine() {
+                long acc = mFirst;
+                for (int i = 1; i < mPartials.length; i++) acc = operator.applyAsLong(acc, mPartials[i]);
+                return acc;
+            }
+        }.start(spawner);
+    }
+
+    @NonNull
+    public static BulkOperation<Double> parallelReduce(@NonNull ExecutorTaskSpawner spawner,
+                                                       @NonNull double[] array,
+                                                       double identity,
+                                                       @NonNull DoubleBinaryOperator operator) {
+        return new BulkOperation<Double>(array.length) {
+            private double mFirst = identity;
+            private double[] mPartials;
+
+            @Override
+            protected void prepare(int chunks) {
+                mPartials = new double[chunks];
+            }
+
+            @Override
+            protected void process(int from, int to, int chunk) {
+                double acc = identity;
+                for (int i = from; i < to; i++) acc = operator.applyAsDouble(acc, array[i]);
+                if (chunk == 0) mFirst = acc;
+                else mPartials[chunk] = acc;
+            }
+
+            @Override
+            protected Double combine() {
+                double acc = mFirst;
+                for (int i = 1; i < mPartials.length; i++) acc = operator.applyAsDouble(acc, mPartials[i]);
+                return acc;
+            }
+        }.start(spawner);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.fork;
+
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.task.executor.ExecutorTaskSpawner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@SuppressWarnings("unused")
+public class ForkJoinTaskSpawner extends ExecutorTaskSpawner {
+    public ForkJoinTaskSpawner() {
+        this(null, null);
+    }
+
+    public ForkJoinTaskSpawner(@Nullable ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    protected ForkJoinTaskSpawner(@Nullable ForkJoinPool pool,
+                                  @Nullable Object lock) {
+        super(pool, lock);
+    }
+
+    @NonNull
+    public ForkJoinPool getPool() {
+        Executor executor = mExecutor;
+        if (!(executor instanceof ForkJoinPool)) {
+            throw new IllegalStateException("No fork/join pool attached");
+        }
+        return (ForkJoinPool) executor;
+    }
+
+    @NonNull
+    public <R> ForkTask<R> submit(@NonNull ForkTask<R> task) {
+        synchronized (mLock) {
+            throwIfClosed();
+            task.mPool = getPool();
+            task.mMetrics = mMetrics;
+        }
+        return task.fork();
+    }
+
+    @Nullable
+    public <R> R invoke(@NonNull ForkTask<R> task) throws ExecutionException {
+        return submit(task).join();
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static ForkJoinTaskSpawner with(@NonNull ForkJoinPool pool) {
+        return with(pool, true);
+    }
+
+    @NonNull
+    public static ForkJoinTaskSpawner with(@NonNull ForkJoinPool pool,
+                                           boolean isShared) {
+        ForkJoinTaskSpawner spawner = new ForkJoinTaskSpawner();
+        spawner.mExecutor = pool;
+        spawner.mShutdown = !isShared;
+        return spawner;
+    }
+
+    @NonNull
+    public static ForkJoinTaskSpawner common() {
+        return with(ForkJoinPool.commonPool(), true);
+    }
+
+    @NonNull
+    public static ForkJoinTaskSpawner create() {
+        return with(new ForkJoinPool(), false);
+    }
+
+    @NonNull
+    public static ForkJoinTaskSpawner create(int parallelism) {
+        return with(new ForkJoinPool(parallelism), false);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.fork;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.exec.loop.LooperWatchdog;
+import gvoid.concurrent.task.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Divide-and-conquer task run on a work-stealing {@link ForkJoinPool}. {@link #join()} never
+ * blocks a pool worker, it runs the subtask inline if it was not taken yet or helps with
+ * queued work until it completes. Cancelling a task also cancels the subtasks it forked.
+ */
+@SuppressWarnings("unused")
+public abstract class ForkTask<R> extends Task {
+    private static final ThreadLocal<ForkTask<?>> sCurrent = new ThreadLocal<>();
+
+    @Nullable
+    volatile ForkJoinPool mPool;
+
+    private volatile R mResult;
+    private volatile ForkJoinTask<?> mFork;
+    private volatile boolean mInline;
+
+    @GuardedBy("mLock")
+    private List<ForkTask<?>> mChildren;
+
+    public ForkTask() {
+        super(null, null, null);
+        mExec = task -> {
+            ForkTask<?> parent = sCurrent.get();
+            sCurrent.set(this);
+            try {
+                mResult = compute();
+            } finally {
+                if (parent != null) sCurrent.set(parent);
+                else sCurrent.remove();
+            }
+            return null;
+        };
+    }
+
+    protected abstract R compute() throws Exception;
+
+    @Nullable
+    public final R getResult() {
+        return mResult;
+    }
+
+    /* -------- Fork / join ------------ */
+    @NonNull
+    public final ForkTask<R> fork() {
+        ForkTask<?> parent = sCurrent.get();
+        if (parent != null) parent.addChild(this);
+        execute();
+        return this;
+    }
+
+    @Nullable
+    public final R join() throws ExecutionException {
+        if (mFork == null && !isStarted()) {
+            mInline = true;
+            execute();
+        }
+
+        ForkJoinTask<?> fork = mFork;
+        if (!isDone() && fork != null) {
+            if (!ForkJoinTask.inForkJoinPool()) LooperWatchdog.checkBlockingCall();
+            try {
+                fork.join();
+            } catch (CancellationException ignored) {
+            }
+        }
+        if (!isDone()) {
+            // Running inline on another thread
+            awaitDone();
+        }
+
+        if (isCanceled()) {
+            throw new CancellationException("Task was cancelled");
+        }
+        if (isFailed()) {
+            throw new ExecutionException(getCause());
+        }
+        return mResult;
+    }
+
+    @Nullable
+    public final R invoke() throws ExecutionException {
+        mInline = true;
+        return join();
+    }
+
+    public static void invokeAll(@NonNull ForkTask<?>... tasks) throws ExecutionException {
+        for (int i = tasks.length - 1; i > 0; i--) {
+            tasks[i].fork();
+        }
+        ExecutionException error = null;
+        for (ForkTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (ExecutionException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void awaitDone() {
+        boolean interrupted = false;
+        synchronized (mLock) {
+            while (!isDone()) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /* -------- Cancellation ----------- */
+    private void addChild(@NonNull ForkTask<?> child) {
+        boolean canceled;
+        synchronized (mLock) {
+            canceled = isCanceled();
+            if (!canceled) {
+                if (mChildren == null) mChildren = new ArrayList<>(2);
+                mChildren.add(child);
+            }
+        }
+        if (canceled) child.cancel();
+    }
+
+    @Override
+    public boolean cancel() {
+        if (!super.cancel()) return false;
+
+        ForkJoinTask<?> fork = mFork;
+        if (fork != null) fork.cancel(false);
+
+        List<ForkTask<?>> children;
+        synchronized (mLock) {
+            children = mChildren;
+            mChildren = null;
+        }
+        if (children != null) {
+            for (ForkTask<?> child : children) {
+                child.cancel();
+            }
+        }
+        return true;
+    }
+
+    /* -------- Execution -------------- */
+    @Override
+    protected void onExecute(@NonNull Runnable runnable) throws Exception {
+        if (mInline) {
+            runnable.run();
+            return;
+        }
+
+        ForkJoinTask<?> fork = ForkJoinTask.adapt(runnable);
+        mFork = fork;
+        if (ForkJoinTask.inForkJoinPool()
+                && (mPool == null || mPool == ForkJoinTask.getPool())) {
+            fork.fork();
+            return;
+        }
+
+        ForkJoinPool pool = mPool;
+        if (pool == null) pool = ForkJoinPool.commonPool();
+        pool.execute(fork);
+    }
+}
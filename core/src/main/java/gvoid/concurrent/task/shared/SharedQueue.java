@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.shared;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer multi-consumer ring queue in a memory-mapped file,
+ * shared by every process that opens the same file.
+ * <p>
+ * Slots are claimed with CAS on per-slot sequence numbers. Each slot also records
+ * its state, its producing process and its consuming process, so {@link #recover()} can release slots left behind
+ * by a producer or consumer that died. Entries held by a dead consumer are offered
+ * again, delivery is therefore at-least-once.
+ */
+@SuppressWarnings("unused")
+public class SharedQueue implements Closeable {
+    public static int DEFAULT_CAPACITY = 1024;
+    public static int DEFAULT_SLOT_SIZE = 984;
+    public static long DEFAULT_STALE_TIMEOUT = 10000L;
+    public static long POLL_PARK_NANOS = 50000L;
+
+    public static final int SLOT_EMPTY = 0;
+    public static final int SLOT_WRITING = 1;
+    public static final int SLOT_READY = 2;
+    public static final int SLOT_CLAIMED = 3;
+    public static final int SLOT_ABANDONED = 4;
+    public static final int SLOT_RECLAIMING = 5;
+
+    private static final int MAGIC = 0x47565351;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_SLOT_SIZE = 12;
+    private static final int HEADER_TAIL = 64;
+    private static final int HEADER_HEAD = 128;
+    private static final int HEADER_SIZE = 192;
+
+    private static final int SLOT_SEQ = 0;
+    private static final int SLOT_OWNER = 8;
+    private static final int SLOT_TIME = 16;
+    private static final int SLOT_CLAIMER = 24;
+    private static final int SLOT_STATE = 32;
+    private static final int SLOT_LENGTH = 36;
+    private static final int SLOT_DATA = 40;
+
+    /* Atomic views on the mapping, every field is naturally aligned within its page aligned file */
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final long PID = ProcessHandle.current().pid();
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final File mFile;
+    public final int mCapacity;
+    public final int mSlotSize;
+    public volatile long mStaleTimeout;
+
+    @NonNull
+    private final RandomAccessFile mRaf;
+    @NonNull
+    private final MappedByteBuffer mBuffer;
+    @NonNull
+    private final ByteBuffer mView;
+    private final long mMask;
+    private final int mStride;
+
+    @GuardedBy("mLock")
+    private final long[] mSuspectPos;
+    @GuardedBy("mLock")
+    private final long[] mSuspectTime;
+    private volatile boolean mClosed;
+
+    protected SharedQueue(@NonNull File file,
+                          @NonNull RandomAccessFile raf,
+                          @NonNull MappedByteBuffer buffer,
+                          int capacity,
+                          int slotSize) {
+        mLock = new Object();
+        mFile = file;
+        mRaf = raf;
+        mBuffer = buffer;
+        mCapacity = capacity;
+        mSlotSize = slotSize;
+        mStaleTimeout = DEFAULT_STALE_TIMEOUT;
+
+        mView = buffer;
+        mMask = capacity - 1;
+        mStride = stride(slotSize);
+
+        mSuspectPos = new long[capacity];
+        mSuspectTime = new long[capacity];
+        Arrays.fill(mSuspectPos, -1L);
+    }
+
+    private static int stride(int slotSize) {
+        return (SLOT_DATA + slotSize + 63) & ~63;
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static SharedQueue open(@NonNull File file) throws IOException {
+        return open(file, DEFAULT_CAPACITY, DEFAULT_SLOT_SIZE);
+    }
+
+    /* Capacity and slot size only apply when the file is created, an existing queue keeps its own */
+    @NonNull
+    public static SharedQueue open(@NonNull File file, int capacity, int slotSize) throws IOException {
+        if (capacity < 2 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Capacity must be a power of two and at least 2");
+        }
+        if (slotSize <= 0) {
+            throw new IllegalArgumentException("Slot size must be positive");
+        }
+        if (HEADER_SIZE + (long) capacity * stride(slotSize) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Queue does not fit in a single mapping");
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() >= HEADER_SIZE) {
+                    ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_SIZE)
+                            .order(ByteOrder.nativeOrder());
+                    if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+                        throw new IOException("Not a shared queue file " + file);
+                    }
+                    capacity = header.getInt(HEADER_CAPACITY);
+                    slotSize = header.getInt(HEADER_SLOT_SIZE);
+                    long size = HEADER_SIZE + (long) capacity * stride(slotSize);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+                    return new SharedQueue(file, raf, buffer, capacity, slotSize);
+                }
+
+                long size = HEADER_SIZE + (long) capacity * stride(slotSize);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+                SharedQueue queue = new SharedQueue(file, raf, buffer, capacity, slotSize);
+                queue.format();
+                return queue;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void format() {
+        for (int i = 0; i < mCapacity; i++) {
+            int slot = slotOffset(i);
+            putLong(slot + SLOT_OWNER, 0L);
+            putLong(slot + SLOT_CLAIMER, 0L);
+            putInt(slot + SLOT_STATE, SLOT_EMPTY);
+            putLong(slot + SLOT_SEQ, i);
+        }
+        putLong(HEADER_TAIL, 0L);
+        putLong(HEADER_HEAD, 0L);
+        putInt(HEADER_CAPACITY, mCapacity);
+        putInt(HEADER_SLOT_SIZE, mSlotSize);
+        putInt(HEADER_VERSION, VERSION);
+        putIntVolatile(HEADER_MAGIC, MAGIC);
+        mBuffer.force();
+    }
+
+    private int slotOffset(long pos) {
+        return HEADER_SIZE + (int) (pos & mMask) * mStride;
+    }
+
+    private long getLongVolatile(int offset) {
+        return (long) LONGS.getVolatile(mView, offset);
+    }
+
+    private void putLong(int offset, long value) {
+        LONGS.set(mView, offset, value);
+    }
+
+    private void putLongVolatile(int offset, long value) {
+        LONGS.setVolatile(mView, offset, value);
+    }
+
+    private boolean casLong(int offset, long expected, long value) {
+        return LONGS.compareAndSet(mView, offset, expected, value);
+    }
+
+    private int getInt(int offset) {
+        return (int) INTS.get(mView, offset);
+    }
+
+    private int getIntVolatile(int offset) {
+        return (int) INTS.getVolatile(mView, offset);
+    }
+
+    private void putInt(int offset, int value) {
+        INTS.set(mView, offset, value);
+    }
+
+    private void putIntVolatile(int offset, int value) {
+        INTS.setVolatile(mView, offset, value);
+    }
+
+    private boolean casInt(int offset, int expected, int value) {
+        return INTS.compareAndSet(mView, offset, expected, value);
+    }
+
+    private void putBytes(int offset, @NonNull byte[] data) {
+        ByteBuffer buffer = mView.duplicate();
+        buffer.position(offset);
+        buffer.put(data);
+    }
+
+    @NonNull
+    private byte[] getBytes(int offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer buffer = mView.duplicate();
+        buffer.position(offset);
+        buffer.get(data);
+        return data;
+    }
+
+    private void throwIfClosed() {
+        if (mClosed) {
+            throw new IllegalStateException("Shared queue is closed");
+        }
+    }
+
+    /* -------- Producer --------------- */
+    public boolean offer(@NonNull String name, @Nullable byte[] payload) {
+        return offer(encode(name, payload));
+    }
+
+    public boolean offer(@NonNull byte[] data) {
+        if (data.length > mSlotSize) {
+            throw new IllegalArgumentException("Data exceeds slot size " + mSlotSize);
+        }
+        throwIfClosed();
+
+        int tail = HEADER_TAIL;
+        while (true) {
+            long pos = getLongVolatile(tail);
+            int slot = slotOffset(pos);
+            long diff = getLongVolatile(slot + SLOT_SEQ) - pos;
+            if (diff < 0L) return false;
+            if (diff > 0L || !casLong(tail, pos, pos + 1L)) continue;
+
+            // A stale claim may have been abandoned by recovery, take the next slot then
+            if (!casInt(slot + SLOT_STATE, SLOT_EMPTY, SLOT_WRITING)) continue;
+            putLong(slot + SLOT_OWNER, PID);
+            putLong(slot + SLOT_TIME, System.currentTimeMillis());
+            putBytes(slot + SLOT_DATA, data);
+            putInt(slot + SLOT_LENGTH, data.length);
+            if (!casInt(slot + SLOT_STATE, SLOT_WRITING, SLOT_READY)) continue;
+            putLongVolatile(slot + SLOT_SEQ, pos + 1L);
+            return true;
+        }
+    }
+
+    /* -------- Consumer --------------- */
+    @Nullable
+    public Slot poll() {
+        throwIfClosed();
+
+        int head = HEADER_HEAD;
+        while (true) {
+            long pos = getLongVolatile(head);
+            int slot = slotOffset(pos);
+            long diff = getLongVolatile(slot + SLOT_SEQ) - (pos + 1L);
+            if (diff < 0L) return null;
+            if (diff > 0L || !casLong(head, pos, pos + 1L)) continue;
+
+            // Recovery must never see the claim without its consumer, record it before the state flips
+            putLong(slot + SLOT_TIME, System.currentTimeMillis());
+            putLongVolatile(slot + SLOT_CLAIMER, PID);
+            if (!casInt(slot + SLOT_STATE, SLOT_READY, SLOT_CLAIMED)) {
+                // Abandoned by a dead producer or taken over by recovery
+                if (getIntVolatile(slot + SLOT_STATE) == SLOT_ABANDONED) release(pos);
+                continue;
+            }
+
+            byte[] data = getBytes(slot + SLOT_DATA, getInt(slot + SLOT_LENGTH));
+            return new Slot(pos, data);
+        }
+    }
+
+    @Nullable
+    public Slot poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Slot slot = poll();
+            if (slot != null) return slot;
+            if (Thread.interrupted()) throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0L) return null;
+            LockSupport.parkNanos(this, POLL_PARK_NANOS);
+        }
+    }
+
+    /* Releases a polled slot once its entry has been handled */
+    public boolean complete(@NonNull Slot slot) {
+        int address = slotOffset(slot.mPosition);
+        if (!isHeld(address, slot)) return false;
+        if (!casInt(address + SLOT_STATE, SLOT_CLAIMED, SLOT_RECLAIMING)) return false;
+        release(slot.mPosition);
+        return true;
+    }
+
+    /* Offers a polled entry again and releases its slot, false if the queue is full */
+    public boolean requeue(@NonNull Slot slot) {
+        int address = slotOffset(slot.mPosition);
+        if (!isHeld(address, slot)) return false;
+        if (!casInt(address + SLOT_STATE, SLOT_CLAIMED, SLOT_RECLAIMING)) return false;
+        if (!offer(slot.mData)) {
+            putIntVolatile(address + SLOT_STATE, SLOT_CLAIMED);
+            return false;
+        }
+        release(slot.mPosition);
+        return true;
+    }
+
+    /* A slot completed before, or recovered and reused since, no longer belongs to this handle */
+    private boolean isHeld(int address, @NonNull Slot slot) {
+        return getLongVolatile(address + SLOT_SEQ) == slot.mPosition + 1L
+                && getLongVolatile(address + SLOT_CLAIMER) == PID;
+    }
+
+    private void release(long pos) {
+        int slot = slotOffset(pos);
+        putLong(slot + SLOT_OWNER, 0L);
+        putLong(slot + SLOT_CLAIMER, 0L);
+        putIntVolatile(slot + SLOT_STATE, SLOT_EMPTY);
+        putLongVolatile(slot + SLOT_SEQ, pos + mCapacity);
+    }
+
+    /* -------- Recovery --------------- */
+    /* Releases slots held by dead processes, returns the number of recovered slots */
+    public int recover() {
+        throwIfClosed();
+
+        synchronized (mLock) {
+            long now = System.nanoTime();
+            long staleNanos = TimeUnit.MILLISECONDS.toNanos(mStaleTimeout);
+            long tail = getLongVolatile(HEADER_TAIL);
+            long head = getLongVolatile(HEADER_HEAD);
+
+            int recovered = 0;
+            for (int i = 0; i < mCapacity; i++) {
+                int slot = slotOffset(i);
+                long seq = getLongVolatile(slot + SLOT_SEQ);
+                int state = getIntVolatile(slot + SLOT_STATE);
+                long owner = getLongVolatile(slot + SLOT_OWNER);
+                long claimer = getLongVolatile(slot + SLOT_CLAIMER);
+
+                if (((seq - i) & mMask) == 0L) {
+                    // Claimed by a producer but not yet published
+                    if (seq >= tail) continue;
+                    if (!isDead(i, seq, state, owner, SLOT_WRITING, now, staleNanos)) continue;
+                    if (!casInt(slot + SLOT_STATE, state, SLOT_ABANDONED)) continue;
+                    putLongVolatile(slot + SLOT_SEQ, seq + 1L);
+                    recovered++;
+                } else {
+                    // Published and already taken by a consumer
+                    long pos = seq - 1L;
+                    if (pos >= head) continue;
+                    if (state == SLOT_ABANDONED) {
+                        if (!isDead(i, pos, state, 0L, SLOT_ABANDONED, now, staleNanos)) continue;
+                        if (!casInt(slot + SLOT_STATE, state, SLOT_RECLAIMING)) continue;
+                        release(pos);
+                        recovered++;
+                        continue;
+                    }
+                    if (!isDead(i, pos, state, claimer, SLOT_CLAIMED, now, staleNanos)) continue;
+                    if (!casInt(slot + SLOT_STATE, state, SLOT_RECLAIMING)) continue;
+
+                    byte[] data = getBytes(slot + SLOT_DATA, getInt(slot + SLOT_LENGTH));
+                    if (!offer(data)) {
+                        putIntVolatile(slot + SLOT_STATE, state);
+                        continue;
+                    }
+                    release(pos);
+                    recovered++;
+                }
+            }
+            return recovered;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private boolean isDead(int index, long pos, int state, long owner, int ownedState,
+                           long now, long staleNanos) {
+        if (state == ownedState && owner != 0L) {
+            return owner != PID && !isAlive(owner);
+        }
+
+        // The slot was claimed but its owner is not recorded yet, wait whether it moves on
+        if (mSuspectPos[index] != pos) {
+            mSuspectPos[index] = pos;
+            mSuspectTime[index] = now;
+            return false;
+        }
+        return now - mSuspectTime[index] >= staleNanos;
+    }
+
+    /* -------- State ------------------ */
+    public int size() {
+        long tail = getLongVolatile(HEADER_TAIL);
+        long head = getLongVolatile(HEADER_HEAD);
+        return (int) Math.max(0L, Math.min(tail - head, mCapacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    public static long getPid() {
+        return PID;
+    }
+
+    @Override
+    public void close() {
+        if (mClosed) return;
+        mClosed = true;
+        try {
+            mRaf.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /* -------- Descriptors ------------ */
+    @NonNull
+    public static byte[] encode(@NonNull String name, @Nullable byte[] payload) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xffff) {
+            throw new IllegalArgumentException("Name too long");
+        }
+        int length = payload != null ? payload.length : 0;
+        byte[] data = new byte[2 + nameBytes.length + length];
+        data[0] = (byte) (nameBytes.length >>> 8);
+        data[1] = (byte) nameBytes.length;
+        System.arraycopy(nameBytes, 0, data, 2, nameBytes.length);
+        if (length > 0) System.arraycopy(payload, 0, data, 2 + nameBytes.length, length);
+        return data;
+    }
+
+    public static final class Slot {
+        public final long mPosition;
+        @NonNull
+        public final byte[] mData;
+
+        Slot(long position, @NonNull byte[] data) {
+            mPosition = position;
+            mData = data;
+        }
+
+        @NonNull
+        public String getName() {
+            int length = (mData[0] & 0xff) << 8 | mData[1] & 0xff;
+            return new String(mData, 2, length, StandardCharsets.UTF_8);
+        }
+
+        @NonNull
+        public byte[] getPayload() {
+            int offset = 2 + ((mData[0] & 0xff) << 8 | mData[1] & 0xff);
+            byte[] payload = new byte[mData.length - offset];
+            System.arraycopy(mData, offset, payload, 0, payload.length);
+            return payload;
+        }
+    }
+
+    /* -------- Processes -------------- */
+    private static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.task.shared;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+import gvoid.concurrent.task.TaskSpawner;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@SuppressWarnings("unused")
+public class SharedTaskConsumer implements Runnable, Closeable {
+    public static int DEFAULT_MAX_IN_FLIGHT = 64;
+    public static long IDLE_PARK_NANOS = 100000L;
+    public static long RECOVER_INTERVAL = 1000L;
+
+    @NonNull
+    public final Object mLock;
+    @NonNull
+    public final SharedQueue mQueue;
+    @NonNull
+    public final TaskSpawner mSpawner;
+    public volatile int mMaxInFlight;
+
+    @GuardedBy("mLock")
+    private final Map<String, Action> mActions;
+    @NonNull
+    private final AtomicInteger mInFlight;
+    @NonNull
+    private final AtomicLong mHandledCount;
+    @NonNull
+    private final AtomicLong mDroppedCount;
+
+    @Nullable
+    private volatile Thread mThread;
+    private volatile boolean mClosed;
+
+    protected SharedTaskConsumer(@NonNull SharedQueue queue,
+                                 @NonNull TaskSpawner spawner) {
+        mLock = new Object();
+        mQueue = queue;
+        mSpawner = spawner;
+        mMaxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+        mActions = new HashMap<>();
+        mInFlight = new AtomicInteger();
+        mHandledCount = new AtomicLong();
+        mDroppedCount = new AtomicLong();
+    }
+
+    /* -------- Initialization -------- */
+    @NonNull
+    public static SharedTaskConsumer with(@NonNull SharedQueue queue,
+                                          @NonNull TaskSpawner spawner) {
+        return new SharedTaskConsumer(queue, spawner);
+    }
+
+    @NonNull
+    public SharedTaskConsumer start() {
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IllegalStateException("Consumer is closed");
+            }
+            if (mThread != null) return this;
+
+            Thread thread = new Thread(this, "SharedTaskConsumer");
+            thread.setDaemon(true);
+            mThread = thread;
+            thread.start();
+            return this;
+        }
+    }
+
+    /* -------- Actions ---------------- */
+    @NonNull
+    public SharedTaskConsumer register(@NonNull String name, @NonNull Action action) {
+        synchronized (mLock) {
+            mActions.put(name, action);
+            return this;
+        }
+    }
+
+    @NonNull
+    public SharedTaskConsumer unregister(@NonNull String name) {
+        synchronized (mLock) {
+            mActions.remove(name);
+            return this;
+        }
+    }
+
+    public int getInFlightCount() {
+        return mInFlight.get();
+    }
+
+    public long getHandledCount() {
+        return mHandledCount.get();
+    }
+
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /* -------- Consuming -------------- */
+    @Override
+    public void run() {
+        long recoverTime = 0L;
+        while (!mClosed) {
+            long now = System.currentTimeMillis();
+            if (now - recoverTime >= RECOVER_INTERVAL) {
+                recoverTime = now;
+                try {
+                    mQueue.recover();
+                } catch (Throwable tr) {
+                    tr.printStackTrace();
+                }
+            }
+
+            if (mInFlight.get() >= mMaxInFlight) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            SharedQueue.Slot slot;
+            try {
+                slot = mQueue.poll(RECOVER_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            } catch (IllegalStateException e) {
+                break;
+            }
+            if (slot != null) dispatch(slot);
+        }
+    }
+
+    private void dispatch(@NonNull SharedQueue.Slot slot) {
+        Action action;
+        synchronized (mLock) {
+            action = mActions.get(slot.getName());
+        }
+        if (action == null) {
+            mDroppedCount.incrementAndGet();
+            mQueue.complete(slot);
+            return;
+        }
+
+        mInFlight.incrementAndGet();
+        try {
+            mSpawner.execute(
+                    task -> {
+                        action.execute(slot.getPayload());
+                        return null;
+                    },
+                    (state, throwable) -> {
+                        mQueue.complete(slot);
+                        mHandledCount.incrementAndGet();
+                        mInFlight.decrementAndGet();
+                    });
+        } catch (Throwable tr) {
+            // Hand the entry to another consumer instead of losing it
+            mInFlight.decrementAndGet();
+            if (!mQueue.requeue(slot)) tr.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (mLock) {
+            if (mClosed) return;
+            mClosed = true;
+            thread = mThread;
+            mThread = null;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    public interface Action {
+        void execute(@NonNull byte[] payload) throws Exception;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.trace;
+
+import annotation.GuardedBy;
+import annotation.NonNull;
+import annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+@SuppressWarnings("unused")
+public final class FlightRecorder {
+    public static final int MAGIC = 0x47564652;
+    public static final int VERSION = 1;
+
+    public static final int EVENT_POST = 1;
+    public static final int EVENT_READY = 2;
+    public static final int EVENT_RUN_START = 3;
+    public static final int EVENT_RUN_END = 4;
+    public static final int EVENT_POST_EXEC = 5;
+    public static final int EVENT_CANCEL = 6;
+
+    public static final int SOURCE_REQUEST = 1;
+    public static final int SOURCE_TASK = 2;
+
+    public static volatile boolean ENABLED = true;
+    public static int CAPACITY = 4096;
+    public static int MAX_BUFFERS = 256;
+
+    private static final int ID_SHIFT = 40;
+
+    private static final Object sLock = new Object();
+    @GuardedBy("sLock")
+    private static final List<Buffer> sBuffers = new ArrayList<>();
+    @GuardedBy("sLock")
+    private static int sBufferIndex = 0;
+
+    private static final ThreadLocal<Buffer> sLocal = ThreadLocal.withInitial(FlightRecorder::register);
+
+    private FlightRecorder() {
+        throw new UnsupportedOperationException();
+    }
+
+    /* -------- Recording -------------- */
+    public static long nextId() {
+        Buffer buffer = sLocal.get();
+        return ((long) buffer.mIndex << ID_SHIFT) | ++buffer.mIdSeq;
+    }
+
+    public static void record(int type, int source, long id, int aux) {
+        if (!ENABLED) return;
+        sLocal.get().put(System.nanoTime(), id, pack(type, source, aux));
+    }
+
+    public static void clear() {
+        synchronized (sLock) {
+            for (Buffer buffer : sBuffers) {
+                buffer.clear();
+            }
+        }
+    }
+
+    static long pack(int type, int source, int aux) {
+        return ((long) (type & 0xff) << 56)
+                | ((long) (source & 0xff) << 48)
+                | (aux & 0xffffffffL);
+    }
+
+    static int typeOf(long word) {
+        return (int) (word >>> 56) & 0xff;
+    }
+
+    static int sourceOf(long word) {
+        return (int) (word >>> 48) & 0xff;
+    }
+
+    static int auxOf(long word) {
+        return (int) word;
+    }
+
+    /* -------- Dumping ---------------- */
+    public static void dump(@NonNull File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            dump(out);
+        }
+    }
+
+    public static void dump(@NonNull OutputStream out) throws IOException {
+        List<Buffer> buffers;
+        synchronized (sLock) {
+            buffers = new ArrayList<>(sBuffers);
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(System.nanoTime());
+        data.writeLong(System.currentTimeMillis());
+        data.writeInt(buffers.size());
+
+        for (Buffer buffer : buffers) {
+            long[] events = buffer.snapshot();
+            data.writeLong(buffer.mThreadId);
+            data.writeUTF(buffer.mThreadName);
+            data.writeInt(events.length / 3);
+            for (long value : events) {
+                data.writeLong(value);
+            }
+        }
+        data.flush();
+    }
+
+    @NonNull
+    private static Buffer register() {
+        Thread thread = Thread.currentThread();
+        synchronized (sLock) {
+            if (sBuffers.size() >= MAX_BUFFERS) {
+                sBuffers.removeIf(buffer -> buffer.getThread() == null);
+            }
+            Buffer buffer = new Buffer(thread, sBufferIndex++, CAPACITY);
+            if (sBuffers.size() < MAX_BUFFERS) {
+                sBuffers.add(buffer);
+            }
+            return buffer;
+        }
+    }
+
+    private static final class Buffer {
+        private static final AtomicLongFieldUpdater<Buffer> HEAD =
+                AtomicLongFieldUpdater.newUpdater(Buffer.class, "mHead");
+
+        private final WeakReference<Thread> mThread;
+        private final long mThreadId;
+        private final String mThreadName;
+        private final int mIndex;
+        private final long[] mEvents;
+        private final int mMask;
+
+        private volatile long mHead;
+        private volatile long mTail;
+        private long mIdSeq;
+
+        private Buffer(@NonNull Thread thread, int index, int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+
+            mThread = new WeakReference<>(thread);
+            mThreadId = thread.getId();
+            mThreadName = thread.getName();
+            mIndex = index;
+            mEvents = new long[size * 3];
+            mMask = size - 1;
+        }
+
+        @Nullable
+        private Thread getThread() {
+            return mThread.get();
+        }
+
+        private void put(long time, long id, long word) {
+            long head = mHead;
+            int offset = (int) (head & mMask) * 3;
+            mEvents[offset] = time;
+            mEvents[offset + 1] = id;
+            mEvents[offset + 2] = word;
+            HEAD.lazySet(this, head + 1);
+        }
+
+        private void clear() {
+            mTail = mHead;
+        }
+
+        @NonNull
+        private long[] snapshot() {
+            int size = mMask + 1;
+            long head = mHead;
+            long from = Math.max(Math.max(head - size, 0L), mTail);
+
+            long[] events = new long[(int) (head - from) * 3];
+            for (long seq = from; seq < head; seq++) {
+                int offset = (int) (seq & mMask) * 3;
+                int index = (int) (seq - from) * 3;
+                events[index] = mEvents[offset];
+                events[index + 1] = mEvents[offset + 1];
+                events[index + 2] = mEvents[offset + 2];
+            }
+
+            long valid = mHead - size + 1;
+            if (valid <= from) return events;
+            if (valid >= head) return new long[0];
+
+            int skip = (int) (valid - from) * 3;
+            long[] trimmed = new long[events.length - skip];
+            System.arraycopy(events, skip, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2021 GVoid (Pascal Gerner)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gvoid.concurrent.trace;
+
+import annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import static gvoid.concurrent.trace.FlightRecorder.*;
+
+/**
+ * Converts a {@link FlightRecorder} dump into the Chrome trace event format,
+ * which can be opened with chrome://tracing or ui.perfetto.dev.
+ */
+@SuppressWarnings("unused")
+public final class TraceConverter {
+    private TraceConverter() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: TraceConverter <dump> [<trace.json>]");
+            System.exit(1);
+            return;
+        }
+
+        try (InputStream in = new FileInputStream(args[0]);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     args.length > 1 ? new FileOutputStream(args[1]) : System.out,
+                     StandardCharsets.UTF_8))) {
+            convert(in, out);
+        }
+    }
+
+    public static void convert(@NonNull InputStream in, @NonNull Writer out) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a flight recorder dump");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported dump version " + version);
+        }
+        long dumpNanos = data.readLong();
+        long dumpMillis = data.readLong();
+        int bufferCount = data.readInt();
+
+        out.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+        boolean first = true;
+        for (int b = 0; b < bufferCount; b++) {
+            long tid = data.readLong();
+            String name = data.readUTF();
+            int count = data.readInt();
+
+            first = comma(out, first);
+            out.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":");
+            out.write(Long.toString(tid));
+            out.write(",\"args\":{\"name\":");
+            writeString(out, name);
+            out.write("}}");
+
+            int depth = 0;
+            for (int i = 0; i < count; i++) {
+                long time = data.readLong();
+                long id = data.readLong();
+                long word = data.readLong();
+
+                int type = typeOf(word);
+                String ts = toMicros(time, dumpNanos, dumpMillis);
+                String label = label(sourceOf(word), id);
+
+                switch (type) {
+                    case EVENT_RUN_START:
+                        depth++;
+                        first = comma(out, first);
+                        writeEvent(out, "B", label, tid, ts, id, word);
+                        first = comma(out, first);
+                        writeFlow(out, "f", tid, ts, id);
+                        break;
+                    case EVENT_RUN_END:
+                        if (depth == 0) break;
+                        depth--;
+                        first = comma(out, first);
+                        writeEvent(out, "E", label, tid, ts, id, word);
+                        break;
+                    case EVENT_POST:
+                        first = comma(out, first);
+                        writeInstant(out, "post " + label, tid, ts, id, word);
+                        first = comma(out, first);
+                        writeFlow(out, "s", tid, ts, id);
+                        break;
+                    case EVENT_READY:
+                        first = comma(out, first);
+                        writeInstant(out, "ready " + label, tid, ts, id, word);
+                        break;
+                    case EVENT_POST_EXEC:
+                        first = comma(out, first);
+                        writeInstant(out, "post-exec " + label, tid, ts, id, word);
+                        break;
+                    case EVENT_CANCEL:
+                        first = comma(out, first);
+                        writeInstant(out, "cancel " + label, tid, ts, id, word);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        out.write("]}\n");
+        out.flush();
+    }
+
+    /* -------- Formatting ------------- */
+    private static boolean comma(@NonNull Writer out, boolean first) throws IOException {
+        if (!first) out.write(",\n");
+        return false;
+    }
+
+    @NonNull
+    private static String label(int source, long id) {
+        String prefix = source == SOURCE_TASK ? "task" : "request";
+        return prefix + " #" + Long.toHexString(id);
+    }
+
+    @NonNull
+    private static String toMicros(long time, long dumpNanos, long dumpMillis) {
+        long nanos = dumpMillis * 1000000L + (time - dumpNanos);
+        return (nanos / 1000L) + "." + String.format("%03d", Math.abs(nanos % 1000L));
+    }
+
+    private static void writeEvent(@NonNull Writer out, @NonNull String ph, @NonNull String name,
+                                   long tid, @NonNull String ts, long id, long word) throws IOException {
+        out.write("{\"ph\":\"");
+        out.write(ph);
+        out.write("\",\"cat\":\"gvoid\",\"name\":");
+        writeString(out, name);
+        out.write(",\"pid\":1,\"tid\":");
+        out.write(Long.toString(tid));
+        out.write(",\"ts\":");
+        out.write(ts);
+        writeArgs(out, id, word);
+        out.write("}");
+    }
+
+    private static void writeInstant(@NonNull Writer out, @NonNull String name,
+                                     long tid, @NonNull String ts, long id, long word) throws IOException {
+        out.write("{\"ph\":\"i\",\"s\":\"t\",\"cat\":\"gvoid\",\"name\":");
+        writeString(out, name);
+        out.write(",\"pid\":1,\"tid\":");
+        out.write(Long.toString(tid));
+        out.write(",\"ts\":");
+        out.write(ts);
+        writeArgs(out, id, word);
+        out.write("}");
+    }
+
+    private static void writeFlow(@NonNull Writer out, @NonNull String ph,
+                                  long tid, @NonNull String ts, long id) throws IOException {
+        out.write("{\"ph\":\"");
+        out.write(ph);
+        out.write("\",\"cat\":\"gvoid.flow\",\"name\":\"dispatch\",\"bp\":\"e\",\"pid\":1,\"tid\":");
+        out.write(Long.toString(tid));
+        out.write(",\"ts\":");
+        out.write(ts);
+        out.write(",\"id\":\"0x");
+        out.write(Long.toHexString(id));
+        out.write("\"}");
+    }
+
+    private static void writeArgs(@NonNull Writer out, long id, long word) throws IOException {
+        out.write(",\"args\":{\"id\":\"0x");
+        out.write(Long.toHexString(id));
+        out.write("\",\"aux\":\"0x");
+        out.write(Integer.toHexString(auxOf(word)));
+        out.write("\"}");
+    }
+
+    private static void writeString(@NonNull Writer out, @NonNull String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -27,6 +27,7 @@ public final class States {
     public static final int STATE_SUCCESS = STATE_DONE | 0x1 << 28;
     public static final int STATE_FAILED = STATE_DONE | 0x1 << 29;
     public static final int STATE_POST_FAILED = STATE_DONE | 0x1 << 30;
+    public static final int STATE_TIMED_OUT = STATE_FAILED | 0x1 << 23;
 
     public static boolean isStarted(int state) {
         return (state & STATE_READY) != 0;
@@ -73,4 +74,8 @@ public final class States {
     public static boolean isFailedPost(int state) {
         return (state & STATE_POST_FAILED & ~STATE_DONE) != 0;
     }
+
+    public static boolean isTimedOut(int state) {
+        return (state & STATE_TIMED_OUT & ~STATE_FAILED) != 0;
+    }
 }